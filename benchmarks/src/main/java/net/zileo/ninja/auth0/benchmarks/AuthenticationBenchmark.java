@@ -0,0 +1,151 @@
+package net.zileo.ninja.auth0.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+
+import net.zileo.ninja.auth0.filters.AuthenticateFilter;
+import net.zileo.ninja.auth0.filters.CheckAuthenticatedFilter;
+import net.zileo.ninja.auth0.handlers.Auth0TokenHandler;
+import net.zileo.ninja.auth0.jwt.ProjectedJWT;
+import net.zileo.ninja.auth0.subject.Subject;
+import net.zileo.ninja.auth0.subject.SubjectExtractor;
+import ninja.Context;
+import ninja.FilterChain;
+import ninja.Result;
+import ninja.Results;
+import ninja.Router;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Per-request cost of the authentication path, for tokens carrying 5, 20 or 60 custom claims. Run with
+ * {@link BenchmarkRunner} to sweep thread counts and report allocation rates.
+ *
+ * @author jlannoy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Environment {
+
+        @Param({
+                "5", "20", "60"
+        })
+        public int claims;
+
+        String idToken;
+
+        DecodedJWT jwt;
+
+        BenchmarkTokenHandler tokenHandler;
+
+        AuthenticateFilter authenticateFilter;
+
+        CheckAuthenticatedFilter checkAuthenticatedFilter;
+
+        SubjectExtractor subjectExtractor;
+
+        @Setup(Level.Trial)
+        public void setup() {
+
+            idToken = BenchmarkTokens.idToken(claims);
+            jwt = JWT.decode(idToken);
+
+            Injector injector = Guice.createInjector(new AbstractModule() {
+                @Override
+                protected void configure() {
+                    bind(NinjaProperties.class).toInstance(Fakes.properties());
+                    bind(Router.class).toInstance(Fakes.unused(Router.class));
+                    bindConstant().annotatedWith(Names.named("auth0.domain")).to(BenchmarkTokens.DOMAIN);
+                    bindConstant().annotatedWith(Names.named("auth0.clientId")).to(BenchmarkTokens.CLIENT_ID);
+                    bindConstant().annotatedWith(Names.named("auth0.clientSecret")).to(BenchmarkTokens.CLIENT_SECRET);
+                    bindConstant().annotatedWith(Names.named("auth0.claimsNamespace")).to(BenchmarkTokens.NAMESPACE);
+                    bind(new TypeLiteral<Auth0TokenHandler<? extends Subject>>() {}).to(BenchmarkTokenHandler.class);
+                }
+            });
+
+            tokenHandler = injector.getInstance(BenchmarkTokenHandler.class);
+            authenticateFilter = injector.getInstance(AuthenticateFilter.class);
+            checkAuthenticatedFilter = injector.getInstance(CheckAuthenticatedFilter.class);
+            subjectExtractor = injector.getInstance(SubjectExtractor.class);
+
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class Request {
+
+        private static final Result RESULT = Results.ok();
+
+        final FilterChain chain = context -> RESULT;
+
+        Context context;
+
+        @Setup(Level.Trial)
+        public void setup(Environment environment) {
+            context = Fakes.context(environment.idToken);
+        }
+
+    }
+
+    @Benchmark
+    public Result authenticateFilter(Environment environment, Request request) {
+        return environment.authenticateFilter.filter(request.chain, request.context);
+    }
+
+    @Benchmark
+    public Result checkAuthenticatedFilter(Environment environment, Request request) {
+        return environment.checkAuthenticatedFilter.filter(request.chain, request.context);
+    }
+
+    @Benchmark
+    public Subject subjectExtractor(Environment environment, Request request) {
+        return environment.subjectExtractor.extract(request.context);
+    }
+
+    @Benchmark
+    public Subject buildSubject(Environment environment, Request request) {
+        return environment.tokenHandler.buildSubject(request.context, environment.idToken);
+    }
+
+    @Benchmark
+    public DecodedJWT decodeFull(Environment environment) {
+        return JWT.decode(environment.idToken);
+    }
+
+    @Benchmark
+    public DecodedJWT decodeProjected(Environment environment) {
+        return ProjectedJWT.decode(environment.idToken, environment.tokenHandler.getClaimsProjection());
+    }
+
+    @Benchmark
+    public Subject autoExtractClaims(Environment environment) {
+        return environment.tokenHandler.extractClaims(environment.jwt);
+    }
+
+}
@@ -0,0 +1,40 @@
+package net.zileo.ninja.auth0.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks at 1, 8 and 32 threads, with the GC profiler enabled so that allocation rates are reported
+ * alongside throughput. Any JMH command line option (benchmark pattern, <code>-f</code>, <code>-wi</code>...) can be
+ * passed too ; use <code>-t</code> to run a single thread count instead of the sweep.
+ *
+ * @author jlannoy
+ */
+public final class BenchmarkRunner {
+
+    private static final int[] THREADS = {
+            1, 8, 32
+    };
+
+    private BenchmarkRunner() {}
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        if (commandLine.getThreads().hasValue()) {
+            new Runner(new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build()).run();
+            return;
+        }
+
+        for (int threads : THREADS) {
+            new Runner(new OptionsBuilder().parent(commandLine).threads(threads).addProfiler(GCProfiler.class).build()).run();
+        }
+
+    }
+
+}
@@ -0,0 +1,25 @@
+package net.zileo.ninja.auth0.benchmarks;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import net.zileo.ninja.auth0.utils.Auth0Subject;
+import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
+
+/**
+ * Default token handler, exposing its claims extraction to the benchmarks.
+ *
+ * @author jlannoy
+ */
+public class BenchmarkTokenHandler extends Auth0SubjectTokenHandler {
+
+    public BenchmarkTokenHandler() {
+        setProjectClaims(true);
+    }
+
+    public Auth0Subject extractClaims(DecodedJWT jwt) {
+        Auth0Subject.Builder subject = Auth0Subject.builder(getUserId(jwt), getEmail(jwt));
+        autoExtractClaims(jwt, subject);
+        return subject.build();
+    }
+
+}
@@ -0,0 +1,66 @@
+package net.zileo.ninja.auth0.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Date;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator.Builder;
+import com.auth0.jwt.algorithms.Algorithm;
+
+/**
+ * Builds Id Tokens shaped like the ones issued by Auth0 : standard OpenID claims, profile claims, and a given number of
+ * namespaced custom claims of mixed types.
+ *
+ * @author jlannoy
+ */
+public final class BenchmarkTokens {
+
+    public static final String DOMAIN = "zileo-bench.eu.auth0.com";
+
+    public static final String CLIENT_ID = "bench-client-id";
+
+    public static final String CLIENT_SECRET = "bench-client-secret";
+
+    public static final String NAMESPACE = "https://zileo.net/";
+
+    public static final String EMAIL = "bench@zileo.net";
+
+    private BenchmarkTokens() {}
+
+    /**
+     * @param customClaims
+     *            number of namespaced custom claims
+     * @return a signed Id Token
+     */
+    public static String idToken(int customClaims) {
+
+        long now = System.currentTimeMillis();
+
+        Builder builder = JWT.create().withIssuer("https://" + DOMAIN + "/").withAudience(CLIENT_ID).withSubject("auth0|5b8e7c1d2f3a4b5c6d7e8f90")
+                .withIssuedAt(new Date(now)).withExpiresAt(new Date(now + 36000000L)).withClaim("email", EMAIL).withClaim("email_verified", Boolean.TRUE)
+                .withClaim("name", EMAIL).withClaim("nickname", "bench").withClaim("picture", "https://s.gravatar.com/avatar/0123456789abcdef0123456789abcdef?s=480&r=pg&d=https%3A%2F%2Fcdn.auth0.com%2Favatars%2Fbe.png")
+                .withClaim("updated_at", "2018-09-04T12:34:56.789Z").withClaim("nonce", "kTr0aGxGxyqIfNMdEqHh6o1P");
+
+        for (int i = 0; i < customClaims; i++) {
+            switch (i % 3) {
+            case 0:
+                builder.withClaim(NAMESPACE + "flag_" + i, i % 2 == 0);
+                break;
+            case 1:
+                builder.withClaim(NAMESPACE + "count_" + i, (long) i * 1000);
+                break;
+            default:
+                builder.withClaim(NAMESPACE + "value_" + i, "value-of-custom-claim-" + i);
+                break;
+            }
+        }
+
+        try {
+            return builder.sign(Algorithm.HMAC256(CLIENT_SECRET));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+
+    }
+
+}
@@ -0,0 +1,112 @@
+package net.zileo.ninja.auth0.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.zileo.ninja.auth0.controllers.Auth0Controller;
+import ninja.Context;
+import ninja.session.Session;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Lightweight stand-ins for Ninja's request objects. They are dynamic proxies only answering the few methods used on
+ * the authentication path, so that they add as little as possible to measured allocations.
+ *
+ * @author jlannoy
+ */
+public final class Fakes {
+
+    private Fakes() {}
+
+    /**
+     * @param idToken
+     *            Id Token stored in session
+     * @return a context with a session holding the given token
+     */
+    public static Context context(String idToken) {
+
+        Map<String, String> sessionData = new HashMap<>();
+        Map<String, Object> attributes = new HashMap<>();
+        sessionData.put(Auth0Controller.SESSION_ID_TOKEN, idToken);
+
+        Session session = (Session) Proxy.newProxyInstance(Fakes.class.getClassLoader(), new Class<?>[] {
+                Session.class
+        }, (proxy, method, args) -> {
+            switch (method.getName()) {
+            case "get":
+                return sessionData.get(args[0]);
+            case "put":
+                return sessionData.put((String) args[0], (String) args[1]);
+            case "remove":
+                return sessionData.remove(args[0]);
+            case "isEmpty":
+                return sessionData.isEmpty();
+            case "getData":
+                return sessionData;
+            default:
+                return null;
+            }
+        });
+
+        return (Context) Proxy.newProxyInstance(Fakes.class.getClassLoader(), new Class<?>[] {
+                Context.class
+        }, (proxy, method, args) -> {
+            switch (method.getName()) {
+            case "getSession":
+                return session;
+            case "getAttribute":
+                return args.length == 1 ? attributes.get(args[0]) : ((Class<?>) args[1]).cast(attributes.get(args[0]));
+            case "setAttribute":
+                attributes.put((String) args[0], args[1]);
+                return null;
+            case "getRequestPath":
+                return "/helloSubject";
+            case "getContextPath":
+                return "";
+            case "getScheme":
+                return "https";
+            case "getHostname":
+                return "localhost";
+            default:
+                return null;
+            }
+        });
+
+    }
+
+    /**
+     * @return Ninja properties in dev mode, answering default values
+     */
+    public static NinjaProperties properties() {
+
+        return (NinjaProperties) Proxy.newProxyInstance(Fakes.class.getClassLoader(), new Class<?>[] {
+                NinjaProperties.class
+        }, (proxy, method, args) -> {
+            switch (method.getName()) {
+            case "isProd":
+            case "isTest":
+                return false;
+            case "isDev":
+                return true;
+            default:
+                return method.getName().endsWith("WithDefault") ? args[1] : null;
+            }
+        });
+
+    }
+
+    /**
+     * @param type
+     *            an interface
+     * @return an instance of the interface whose methods all return null
+     */
+    public static <T> T unused(Class<T> type) {
+
+        return type.cast(Proxy.newProxyInstance(Fakes.class.getClassLoader(), new Class<?>[] {
+                type
+        }, (proxy, method, args) -> null));
+
+    }
+
+}
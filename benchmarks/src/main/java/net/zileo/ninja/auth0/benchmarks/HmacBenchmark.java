@@ -0,0 +1,91 @@
+package net.zileo.ninja.auth0.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import net.zileo.ninja.auth0.jwt.PooledHmacAlgorithm;
+
+/**
+ * HS256 signing and verification cost, with the java-jwt algorithm (a new Mac per call) and with
+ * {@link PooledHmacAlgorithm} (a pre-keyed Mac per thread). Run with {@link BenchmarkRunner} to compare allocation
+ * rates (<code>gc.alloc.rate.norm</code>).
+ *
+ * @author jlannoy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HmacBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Environment {
+
+        @Param({
+                "5", "60"
+        })
+        public int claims;
+
+        DecodedJWT jwt;
+
+        byte[] content;
+
+        Algorithm standard;
+
+        Algorithm pooled;
+
+        @Setup(Level.Trial)
+        public void setup() throws UnsupportedEncodingException {
+
+            jwt = JWT.decode(BenchmarkTokens.idToken(claims));
+            content = (jwt.getHeader() + "." + jwt.getPayload()).getBytes(StandardCharsets.UTF_8);
+
+            standard = Algorithm.HMAC256(BenchmarkTokens.CLIENT_SECRET);
+            pooled = PooledHmacAlgorithm.HS256(BenchmarkTokens.CLIENT_SECRET);
+
+        }
+
+    }
+
+    @Benchmark
+    public DecodedJWT verifyStandard(Environment environment) {
+        environment.standard.verify(environment.jwt);
+        return environment.jwt;
+    }
+
+    @Benchmark
+    public DecodedJWT verifyPooled(Environment environment) {
+        environment.pooled.verify(environment.jwt);
+        return environment.jwt;
+    }
+
+    @Benchmark
+    public byte[] signStandard(Environment environment) {
+        return environment.standard.sign(environment.content);
+    }
+
+    @Benchmark
+    public byte[] signPooled(Environment environment) {
+        return environment.pooled.sign(environment.content);
+    }
+
+}
@@ -0,0 +1,382 @@
+package net.zileo.ninja.auth0.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates a token handler for each <code>@MappedSubject</code> class : a <code>{Subject}TokenHandler</code> class,
+ * in the same package, reading the <code>@FromClaim</code> claims with straight-line code. Annotations are matched by
+ * name, so that this processor has no dependency.
+ *
+ * @author jlannoy
+ */
+public class MappedSubjectProcessor extends AbstractProcessor {
+
+    static final String MAPPED_SUBJECT = "net.zileo.ninja.auth0.subject.MappedSubject";
+
+    static final String FROM_CLAIM = "net.zileo.ninja.auth0.subject.FromClaim";
+
+    private static final String SUBJECT = "net.zileo.ninja.auth0.subject.Subject";
+
+    private static final Map<String, String> PRIMITIVE_HELPERS = new HashMap<>();
+
+    static {
+        PRIMITIVE_HELPERS.put("booleanValue(%s)", helper("boolean", "Boolean", "asBoolean", "false"));
+        PRIMITIVE_HELPERS.put("intValue(%s)", helper("int", "Integer", "asInt", "0"));
+        PRIMITIVE_HELPERS.put("longValue(%s)", helper("long", "Long", "asLong", "0L"));
+        PRIMITIVE_HELPERS.put("doubleValue(%s)", helper("double", "Double", "asDouble", "0d"));
+    }
+
+    private static String helper(String type, String wrapper, String method, String defaultValue) {
+        return "    private static " + type + " " + type + "Value(com.auth0.jwt.interfaces.Claim claim) {\n" //
+                + "        " + wrapper + " value = claim." + method + "();\n" //
+                + "        return value != null ? value : " + defaultValue + ";\n" //
+                + "    }\n";
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(MAPPED_SUBJECT);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    process((TypeElement) element);
+                }
+            }
+        }
+        return true;
+
+    }
+
+    private void process(TypeElement subject) {
+
+        TypeElement subjectInterface = processingEnv.getElementUtils().getTypeElement(SUBJECT);
+        if (subjectInterface != null && !processingEnv.getTypeUtils().isAssignable(subject.asType(), subjectInterface.asType())) {
+            error(subject, "@MappedSubject classes must implement " + SUBJECT);
+            return;
+        }
+        if (subject.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(subject, "@MappedSubject classes can't be abstract");
+            return;
+        }
+
+        AnnotationMirror mapping = find(subject, MAPPED_SUBJECT);
+        String scope = (String) value(mapping, "scope", "openid email");
+        String namespace = (String) value(mapping, "namespace", "");
+        boolean verifiedEmail = (Boolean) value(mapping, "verifiedEmail", Boolean.FALSE);
+
+        // Constructor mapping first, else field mapping
+        List<ClaimMapping> parameters = null;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(subject.getEnclosedElements())) {
+            List<ClaimMapping> mapped = mappings(constructor.getParameters(), namespace);
+            if (mapped == null) {
+                return;
+            }
+            if (!mapped.isEmpty()) {
+                if (parameters != null) {
+                    error(constructor, "Only one constructor can be mapped from claims");
+                    return;
+                }
+                if (mapped.size() != constructor.getParameters().size()) {
+                    error(constructor, "All the parameters of a mapped constructor need a @FromClaim annotation");
+                    return;
+                }
+                if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                    error(constructor, "Mapped constructors can't be private");
+                    return;
+                }
+                parameters = mapped;
+            }
+        }
+
+        List<ClaimMapping> fields = mappings(ElementFilter.fieldsIn(subject.getEnclosedElements()), namespace);
+        if (fields == null) {
+            return;
+        }
+        for (ClaimMapping field : fields) {
+            Set<Modifier> modifiers = field.element.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC)) {
+                error(field.element, "Mapped fields can't be private, final nor static");
+                return;
+            }
+        }
+        if (parameters == null) {
+            parameters = Collections.emptyList();
+            if (!hasDefaultConstructor(subject)) {
+                error(subject, "@MappedSubject classes need a mapped constructor, or a non private constructor without parameters");
+                return;
+            }
+        }
+
+        try {
+            write(subject, scope, verifiedEmail, parameters, fields);
+        } catch (IOException e) {
+            error(subject, "Unable to generate token handler : " + e.getMessage());
+        }
+
+    }
+
+    private void write(TypeElement subject, String scope, boolean verifiedEmail, List<ClaimMapping> parameters, List<ClaimMapping> fields) throws IOException {
+
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(subject);
+        String packageName = pkg.isUnnamed() ? null : pkg.getQualifiedName().toString();
+        String subjectName = subject.getQualifiedName().toString();
+        String handlerName = subject.getSimpleName() + "TokenHandler";
+
+        Set<String> claimNames = new LinkedHashSet<>();
+        for (ClaimMapping mapping : parameters) {
+            claimNames.add(mapping.claim);
+        }
+        for (ClaimMapping mapping : fields) {
+            claimNames.add(mapping.claim);
+        }
+        if (verifiedEmail) {
+            claimNames.add("email");
+            claimNames.add("email_verified");
+        }
+
+        String baseClass = verifiedEmail ? "net.zileo.ninja.auth0.handlers.Auth0EmailHandler" : "net.zileo.ninja.auth0.handlers.Auth0TokenHandler";
+
+        StringBuilder source = new StringBuilder();
+        if (packageName != null) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n");
+        source.append(" * Token handler building {@link ").append(subjectName).append("} instances from Id Token claims.\n");
+        source.append(" * Generated by ").append(MappedSubjectProcessor.class.getName()).append(", don't edit.\n");
+        source.append(" */\n");
+        source.append("public class ").append(handlerName).append(" extends ").append(baseClass).append("<").append(subjectName).append("> {\n\n");
+
+        source.append("    private static final net.zileo.ninja.auth0.jwt.ClaimsProjection CLAIMS = net.zileo.ninja.auth0.jwt.ClaimsProjection.of(");
+        boolean first = true;
+        for (String claim : claimNames) {
+            source.append(first ? "" : ", ").append(literal(claim));
+            first = false;
+        }
+        source.append(");\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public String getScope() {\n");
+        source.append("        return ").append(literal(scope)).append(";\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public net.zileo.ninja.auth0.jwt.ClaimsProjection getClaimsProjection() {\n");
+        source.append("        return CLAIMS;\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        if (verifiedEmail) {
+            source.append("    public ").append(subjectName)
+                    .append(" buildSubjectFromEmail(ninja.Context context, com.auth0.jwt.interfaces.DecodedJWT jwt, String userId, String email) {\n");
+        } else {
+            source.append("    public ").append(subjectName).append(" buildSubjectFromJWT(ninja.Context context, com.auth0.jwt.interfaces.DecodedJWT jwt, String userId) {\n");
+        }
+
+        source.append("        ").append(subjectName).append(" subject = new ").append(subjectName).append("(");
+        first = true;
+        for (ClaimMapping mapping : parameters) {
+            source.append(first ? "\n                " : ",\n                ").append(mapping.read());
+            first = false;
+        }
+        source.append(");\n");
+        for (ClaimMapping mapping : fields) {
+            source.append("        subject.").append(mapping.element.getSimpleName()).append(" = ").append(mapping.read()).append(";\n");
+        }
+        source.append("        return subject;\n");
+        source.append("    }\n\n");
+
+        // Missing claims of primitive types
+        Set<String> helpers = new LinkedHashSet<>();
+        for (ClaimMapping mapping : parameters) {
+            helpers.add(mapping.reader);
+        }
+        for (ClaimMapping mapping : fields) {
+            helpers.add(mapping.reader);
+        }
+        for (String helper : helpers) {
+            if (PRIMITIVE_HELPERS.containsKey(helper)) {
+                source.append(PRIMITIVE_HELPERS.get(helper)).append("\n");
+            }
+        }
+
+        source.append("}\n");
+
+        String qualifiedName = packageName != null ? packageName + "." + handlerName : handlerName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, subject).openWriter()) {
+            writer.write(source.toString());
+        }
+
+    }
+
+    /**
+     * @return the claim mappings of the annotated elements, or null if one is invalid
+     */
+    private List<ClaimMapping> mappings(List<? extends VariableElement> elements, String namespace) {
+
+        List<ClaimMapping> mappings = new ArrayList<>();
+        for (VariableElement element : elements) {
+
+            AnnotationMirror fromClaim = find(element, FROM_CLAIM);
+            if (fromClaim == null) {
+                continue;
+            }
+
+            String claim = (String) value(fromClaim, "value", null);
+            if ((Boolean) value(fromClaim, "namespaced", Boolean.FALSE)) {
+                claim = namespace + claim;
+            }
+
+            String reader = reader(element.asType());
+            if (reader == null) {
+                error(element, "Unsupported claim type " + element.asType());
+                return null;
+            }
+
+            mappings.add(new ClaimMapping(element, claim, reader));
+
+        }
+        return mappings;
+
+    }
+
+    /**
+     * @return the expression converting a claim (as <code>%s</code>) to the given type, or null if not supported
+     */
+    private static String reader(TypeMirror type) {
+
+        switch (type.toString()) {
+        case "java.lang.String":
+            return "%s.asString()";
+        case "java.lang.Boolean":
+            return "%s.asBoolean()";
+        case "boolean":
+            return "booleanValue(%s)";
+        case "java.lang.Integer":
+            return "%s.asInt()";
+        case "int":
+            return "intValue(%s)";
+        case "java.lang.Long":
+            return "%s.asLong()";
+        case "long":
+            return "longValue(%s)";
+        case "java.lang.Double":
+            return "%s.asDouble()";
+        case "double":
+            return "doubleValue(%s)";
+        case "java.util.Date":
+            return "%s.asDate()";
+        case "java.lang.String[]":
+            return "%s.asArray(String.class)";
+        case "java.util.List<java.lang.String>":
+            return "%s.asList(String.class)";
+        default:
+            return null;
+        }
+
+    }
+
+    private static AnnotationMirror find(Element element, String annotationName) {
+
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+
+    }
+
+    private static Object value(AnnotationMirror mirror, String name, Object defaultValue) {
+
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return defaultValue;
+
+    }
+
+    private static boolean hasDefaultConstructor(TypeElement subject) {
+
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(subject.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+
+    }
+
+    private static String literal(String value) {
+
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\');
+            }
+            literal.append(c);
+        }
+        return literal.append('"').toString();
+
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+    }
+
+    private static final class ClaimMapping {
+
+        private final VariableElement element;
+
+        private final String claim;
+
+        private final String reader;
+
+        private ClaimMapping(VariableElement element, String claim, String reader) {
+            this.element = element;
+            this.claim = claim;
+            this.reader = reader;
+        }
+
+        private String read() {
+            return String.format(reader, "jwt.getClaim(" + literal(claim) + ")");
+        }
+
+    }
+
+}
@@ -0,0 +1,143 @@
+package net.zileo.ninja.auth0.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+
+import net.zileo.ninja.auth0.handlers.Auth0TokenHandler;
+import net.zileo.ninja.auth0.subject.Subject;
+
+public class MappedSubjectProcessorTest {
+
+    private Path directory;
+
+    private DiagnosticCollector<JavaFileObject> diagnostics;
+
+    @Before
+    public void init() throws IOException {
+        directory = Files.createTempDirectory("processor");
+        diagnostics = new DiagnosticCollector<>();
+    }
+
+    @Test
+    public void testConstructorMapping() throws Exception {
+        assertTrue(compile("models/User.java", "package models;\n" //
+                + "import net.zileo.ninja.auth0.subject.*;\n" //
+                + "@MappedSubject(namespace = \"https://zileo.net/\")\n" //
+                + "public class User implements Subject {\n" //
+                + "    public final String id; public final String email; public final boolean admin; public final long level;\n" //
+                + "    public User(@FromClaim(\"sub\") String id, @FromClaim(\"email\") String email, @FromClaim(value = \"admin\", namespaced = true) boolean admin,\n" //
+                + "            @FromClaim(value = \"level\", namespaced = true) long level) {\n" //
+                + "        this.id = id; this.email = email; this.admin = admin; this.level = level;\n" //
+                + "    }\n" //
+                + "}\n"));
+
+        String idToken = JWT.create().withSubject("auth0|123").withClaim("email", "test@test.com").withClaim("https://zileo.net/admin", true)
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60000)).sign(Algorithm.HMAC256("secret"));
+        Subject user = handler("models.UserTokenHandler").buildSubject(null, idToken);
+
+        assertEquals("auth0|123", field(user, "id"));
+        assertEquals("test@test.com", field(user, "email"));
+        assertEquals(Boolean.TRUE, field(user, "admin"));
+        assertEquals(0L, field(user, "level"));
+    }
+
+    @Test
+    public void testFieldMapping() throws Exception {
+        assertTrue(compile("models/Member.java", "package models;\n" //
+                + "import java.util.List;\n" //
+                + "import net.zileo.ninja.auth0.subject.*;\n" //
+                + "@MappedSubject(verifiedEmail = true)\n" //
+                + "public class Member implements Subject {\n" //
+                + "    @FromClaim(\"email\") public String email;\n" //
+                + "    @FromClaim(\"roles\") public List<String> roles;\n" //
+                + "}\n"));
+
+        Auth0TokenHandler<?> handler = handler("models.MemberTokenHandler");
+
+        String idToken = JWT.create().withSubject("auth0|123").withClaim("email", "test@test.com").withClaim("email_verified", true)
+                .withArrayClaim("roles", new String[] { "admin", "user" }).sign(Algorithm.HMAC256("secret"));
+        Subject member = handler.buildSubject(null, idToken);
+        assertEquals("test@test.com", field(member, "email"));
+        assertEquals(Arrays.asList("admin", "user"), field(member, "roles"));
+
+        String unverified = JWT.create().withSubject("auth0|123").withClaim("email", "test@test.com").sign(Algorithm.HMAC256("secret"));
+        assertFalse(handler.authenticate(null, unverified).isSuccess());
+    }
+
+    @Test
+    public void testInvalidMapping() throws IOException {
+        assertFalse(compile("models/Invalid.java", "package models;\n" //
+                + "import net.zileo.ninja.auth0.subject.*;\n" //
+                + "@MappedSubject\n" //
+                + "public class Invalid implements Subject {\n" //
+                + "    @FromClaim(\"email\") private String email;\n" //
+                + "}\n"));
+
+        List<String> errors = diagnostics.getDiagnostics().stream().filter(d -> d.getKind() == Diagnostic.Kind.ERROR).map(d -> d.getMessage(null))
+                .collect(Collectors.toList());
+        assertEquals(Collections.singletonList("Mapped fields can't be private, final nor static"), errors);
+    }
+
+    private boolean compile(String path, String source) throws IOException {
+
+        Path file = directory.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            String classPath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+            CompilationTask task = compiler.getTask(null, fileManager, diagnostics, Arrays.asList("-classpath", classPath, "-d", directory.toString(), "-proc:only"),
+                    null, fileManager.getJavaFileObjects(file.toFile()));
+            task.setProcessors(Collections.singletonList(new MappedSubjectProcessor()));
+            if (!task.call()) {
+                return false;
+            }
+
+            // Then compile the subject and the generated handler together
+            List<File> sources = Files.walk(directory).filter(p -> p.toString().endsWith(".java")).map(Path::toFile).collect(Collectors.toList());
+            return compiler.getTask(null, fileManager, diagnostics, Arrays.asList("-classpath", classPath, "-d", directory.toString(), "-proc:none"), null,
+                    fileManager.getJavaFileObjectsFromFiles(sources)).call();
+        }
+
+    }
+
+    private Auth0TokenHandler<?> handler(String className) throws Exception {
+        @SuppressWarnings("resource")
+        ClassLoader loader = new URLClassLoader(new URL[] { directory.toUri().toURL() }, getClass().getClassLoader());
+        return (Auth0TokenHandler<?>) loader.loadClass(className).newInstance();
+    }
+
+    private static Object field(Object object, String name) throws ReflectiveOperationException {
+        return object.getClass().getField(name).get(object);
+    }
+
+}
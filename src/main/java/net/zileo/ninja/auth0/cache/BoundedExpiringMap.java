@@ -0,0 +1,196 @@
+package net.zileo.ninja.auth0.cache;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Thread safe map whose entries expire at a given time, bounded in size. When the map is full, the oldest entries are
+ * evicted first. Expired entries are removed when looked up, or when making room for new ones.
+ *
+ * @author jlannoy
+ */
+public final class BoundedExpiringMap<V> {
+
+    private final int maxSize;
+
+    private final ConcurrentHashMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final Queue<Entry<V>> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger insertionOrderLength = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize
+     *            maximum number of entries
+     */
+    public BoundedExpiringMap(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Map size must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param key
+     *            a key
+     * @return the value, or null if absent or expired
+     */
+    public V get(String key) {
+
+        Entry<V> entry = entries.get(key);
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.value;
+
+    }
+
+    /**
+     * Stores a value until the given time. Nothing is stored if that time is already past.
+     *
+     * @param key
+     *            a key
+     * @param value
+     *            a value
+     * @param expiresAt
+     *            expiry time, in milliseconds since epoch
+     */
+    public void put(String key, V value, long expiresAt) {
+
+        long now = System.currentTimeMillis();
+        if (expiresAt <= now) {
+            return;
+        }
+
+        Entry<V> entry = new Entry<>(key, value, expiresAt);
+        entries.put(key, entry);
+        insertionOrder.add(entry);
+        insertionOrderLength.incrementAndGet();
+
+        // Replaced or removed entries are left in the queue and skipped here, rather than searched for on update
+        while (entries.size() > maxSize || insertionOrderLength.get() > 2 * maxSize) {
+            Entry<V> eldest = insertionOrder.poll();
+            if (eldest == null) {
+                break;
+            }
+            insertionOrderLength.decrementAndGet();
+
+            if (entries.size() <= maxSize && entries.get(eldest.key) == eldest && eldest.expiresAt > now) {
+                insertionOrder.add(eldest);
+                insertionOrderLength.incrementAndGet();
+            } else if (entries.remove(eldest.key, eldest)) {
+                evictions.increment();
+            }
+        }
+
+    }
+
+    /**
+     * @param key
+     *            a key
+     * @return the removed value, or null
+     */
+    public V remove(String key) {
+
+        Entry<V> entry = entries.remove(key);
+        return entry != null ? entry.value : null;
+
+    }
+
+    /**
+     * Removes the entries whose value matches a predicate. Goes through all entries, so not meant for the request path.
+     *
+     * @param predicate
+     *            a predicate on values
+     * @return number of removed entries
+     */
+    public int removeValues(Predicate<? super V> predicate) {
+
+        int removed = 0;
+        for (Entry<V> entry : entries.values()) {
+            if (predicate.test(entry.value) && entries.remove(entry.key, entry)) {
+                removed++;
+            }
+        }
+        return removed;
+
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        entries.clear();
+        insertionOrder.clear();
+        insertionOrderLength.set(0);
+    }
+
+    /**
+     * @return number of entries (including expired ones not yet evicted)
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of lookups that returned a value
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that did not return a value
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of entries removed because of their expiry or of the size limit
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private static final class Entry<V> {
+
+        private final String key;
+
+        private final V value;
+
+        private final long expiresAt;
+
+        private Entry(String key, V value, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
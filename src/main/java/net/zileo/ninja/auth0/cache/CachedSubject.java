@@ -0,0 +1,46 @@
+package net.zileo.ninja.auth0.cache;
+
+import net.zileo.ninja.auth0.subject.Subject;
+
+/**
+ * A built Subject, along with the user it belongs to and its expiry time.
+ *
+ * @author jlannoy
+ */
+public final class CachedSubject {
+
+    private final String userId;
+
+    private final Subject subject;
+
+    private final long expiresAt;
+
+    /**
+     * Constructor.
+     *
+     * @param userId
+     *            Auth0 user id, may be null
+     * @param subject
+     *            built Subject
+     * @param expiresAt
+     *            expiry time, in milliseconds since epoch
+     */
+    public CachedSubject(String userId, Subject subject, long expiresAt) {
+        this.userId = userId;
+        this.subject = subject;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Subject getSubject() {
+        return subject;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+}
@@ -0,0 +1,58 @@
+package net.zileo.ninja.auth0.cache;
+
+/**
+ * In memory {@link SharedSubjectCache}, only shared by the {@link SubjectCache} instances of a single JVM. Meant as a
+ * stand-in for tests.
+ *
+ * @author jlannoy
+ */
+public class InMemorySharedSubjectCache implements SharedSubjectCache {
+
+    private final BoundedExpiringMap<CachedSubject> entries;
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize
+     *            maximum number of cached Subjects
+     */
+    public InMemorySharedSubjectCache(int maxSize) {
+        this.entries = new BoundedExpiringMap<>(maxSize);
+    }
+
+    @Override
+    public CachedSubject get(String key) {
+
+        return entries.get(key);
+
+    }
+
+    @Override
+    public void put(String key, CachedSubject subject) {
+
+        entries.put(key, subject, subject.getExpiresAt());
+
+    }
+
+    @Override
+    public void remove(String key) {
+
+        entries.remove(key);
+
+    }
+
+    @Override
+    public void removeUser(String userId) {
+
+        entries.removeValues(cached -> userId.equals(cached.getUserId()));
+
+    }
+
+    /**
+     * @return number of cached Subjects (including expired ones not yet evicted)
+     */
+    public int size() {
+        return entries.size();
+    }
+
+}
@@ -0,0 +1,115 @@
+package net.zileo.ninja.auth0.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts cache invalidations to all the nodes of an application (through a message bus or a Redis channel for
+ * example), so that a logout or a profile change evicts the related Subjects everywhere, and token revocations reach
+ * every {@link net.zileo.ninja.auth0.revocation.RevocationList}. Bind your own implementation
+ * in your Guice module to enable it.
+ *
+ * @author jlannoy
+ */
+public interface InvalidationBroadcaster {
+
+    /**
+     * Sends an invalidation to all nodes, including this one.
+     *
+     * @param invalidation
+     *            invalidation to send
+     */
+    void broadcast(Invalidation invalidation);
+
+    /**
+     * Registers a listener called for each received invalidation.
+     *
+     * @param listener
+     *            invalidation listener
+     */
+    void subscribe(Consumer<Invalidation> listener);
+
+    /**
+     * An invalidation of one cached token, or of all the cached tokens of a user, or the revocation of a token.
+     */
+    public static final class Invalidation {
+
+        private final boolean user;
+
+        private final String value;
+
+        private final boolean revocation;
+
+        private final long expiresAt;
+
+        private Invalidation(boolean user, String value, boolean revocation, long expiresAt) {
+            this.user = user;
+            this.value = value;
+            this.revocation = revocation;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @param key
+         *            token digest (see {@link TokenDigest})
+         * @return a token invalidation
+         */
+        public static Invalidation ofToken(String key) {
+            return new Invalidation(false, key, false, 0);
+        }
+
+        /**
+         * @param userId
+         *            Auth0 user id
+         * @return a user invalidation
+         */
+        public static Invalidation ofUser(String userId) {
+            return new Invalidation(true, userId, false, 0);
+        }
+
+        /**
+         * @param key
+         *            token digest (see {@link TokenDigest})
+         * @param expiresAt
+         *            time until which the token is revoked, in milliseconds since epoch
+         * @return a token revocation, evicting the token from Subject caches too
+         */
+        public static Invalidation ofRevocation(String key, long expiresAt) {
+            return new Invalidation(false, key, true, expiresAt);
+        }
+
+        /**
+         * @return true if all the tokens of a user are invalidated
+         */
+        public boolean isUser() {
+            return user;
+        }
+
+        /**
+         * @return true if the token is revoked too
+         */
+        public boolean isRevocation() {
+            return revocation;
+        }
+
+        /**
+         * @return time until which a revoked token is revoked, in milliseconds since epoch
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        /**
+         * @return token digest, or user id
+         */
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return (user ? "user:" : revocation ? "revocation:" : "token:") + value;
+        }
+
+    }
+
+}
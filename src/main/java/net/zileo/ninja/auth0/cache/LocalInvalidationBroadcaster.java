@@ -0,0 +1,33 @@
+package net.zileo.ninja.auth0.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link InvalidationBroadcaster} delivering invalidations to the listeners of the same JVM only. Meant as a stand-in
+ * for tests.
+ *
+ * @author jlannoy
+ */
+public class LocalInvalidationBroadcaster implements InvalidationBroadcaster {
+
+    private final List<Consumer<Invalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void broadcast(Invalidation invalidation) {
+
+        for (Consumer<Invalidation> listener : listeners) {
+            listener.accept(invalidation);
+        }
+
+    }
+
+    @Override
+    public void subscribe(Consumer<Invalidation> listener) {
+
+        listeners.add(listener);
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package net.zileo.ninja.auth0.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import net.zileo.ninja.auth0.subject.AuthenticationResult;
+import net.zileo.ninja.auth0.subject.FailureReason;
+import net.zileo.ninja.auth0.subject.Subject;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Bounded cache of recently rejected tokens, keyed by a digest of their Id Token, so that a stale cookie sent again on
+ * each request is rejected without decoding nor verifying it again. Only the failures found after the cheap checks of
+ * the {@link net.zileo.ninja.auth0.jwt.TokenPipeline} are kept (invalid signature, missing user id, Subject rejected by
+ * the token handler), for a short time to live. Transient failures, like a token signed by a key not yet fetched, are
+ * not (see {@link FailureReason#isCacheable()}).
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class NegativeCache {
+
+    private final boolean enabled;
+
+    private final long ttlMillis;
+
+    private final BoundedExpiringMap<AuthenticationResult<? extends Subject>> entries;
+
+    /**
+     * Constructor, reading <code>auth0.negativeCache.*</code> properties and reporting cache statistics.
+     *
+     * @param properties
+     *            Ninja's properties
+     * @param metrics
+     *            metrics recorder
+     */
+    @Inject
+    public NegativeCache(NinjaProperties properties, Auth0Metrics metrics) {
+        this(properties.getBooleanWithDefault("auth0.negativeCache.enabled", false), properties.getIntegerWithDefault("auth0.negativeCache.maxSize", 10000),
+                properties.getIntegerWithDefault("auth0.negativeCache.ttl", 60));
+        if (enabled) {
+            metrics.gauge("negativeCache.size", this::size);
+            metrics.gauge("negativeCache.hits", this::getHits);
+            metrics.gauge("negativeCache.evictions", this::getEvictions);
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param enabled
+     *            false to bypass the cache entirely
+     * @param maxSize
+     *            maximum number of rejected tokens kept
+     * @param ttlSeconds
+     *            time a rejection is remembered, in seconds
+     */
+    public NegativeCache(boolean enabled, int maxSize, long ttlSeconds) {
+        this.enabled = enabled;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.entries = new BoundedExpiringMap<>(maxSize);
+    }
+
+    /**
+     * @return true if rejections should be cached
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     * @return the failed result of the token, or null if not rejected recently
+     */
+    @SuppressWarnings("unchecked")
+    public <P extends Subject> AuthenticationResult<P> get(String key) {
+
+        return (AuthenticationResult<P>) entries.get(key);
+
+    }
+
+    /**
+     * Remembers a rejection for the configured time to live.
+     *
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     * @param result
+     *            failed result
+     */
+    public void put(String key, AuthenticationResult<? extends Subject> result) {
+
+        if (result.isSuccess() || !result.getFailure().isCacheable()) {
+            return;
+        }
+
+        entries.put(key, result, System.currentTimeMillis() + ttlMillis);
+
+    }
+
+    /**
+     * Forgets all rejections, after a change making previously rejected users acceptable for example.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return number of rejected tokens kept (including expired ones not yet evicted)
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of tokens answered from this cache
+     */
+    public long getHits() {
+        return entries.getHits();
+    }
+
+    /**
+     * @return number of entries removed because of their expiry or of the size limit
+     */
+    public long getEvictions() {
+        return entries.getEvictions();
+    }
+
+}
@@ -0,0 +1,44 @@
+package net.zileo.ninja.auth0.cache;
+
+/**
+ * Second level of the {@link SubjectCache}, shared by all the nodes of an application (a Redis or Memcached client for
+ * example). Bind your own implementation in your Guice module to enable it ; Subjects then have to be serializable by
+ * your implementation. Calls are made on the request path, so implementations should use short timeouts and treat
+ * failures as misses.
+ *
+ * @author jlannoy
+ */
+public interface SharedSubjectCache {
+
+    /**
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     * @return cached Subject, or null if absent or expired
+     */
+    CachedSubject get(String key);
+
+    /**
+     * Caches a Subject. It should not be kept after its expiry time.
+     *
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     * @param subject
+     *            Subject to cache
+     */
+    void put(String key, CachedSubject subject);
+
+    /**
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     */
+    void remove(String key);
+
+    /**
+     * Removes all the Subjects of a user.
+     *
+     * @param userId
+     *            Auth0 user id
+     */
+    void removeUser(String userId);
+
+}
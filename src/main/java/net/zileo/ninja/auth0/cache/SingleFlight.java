@@ -0,0 +1,150 @@
+package net.zileo.ninja.auth0.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Coalesces concurrent builds of the same value : while a build is in progress for a key, other callers for the same
+ * key wait for its result instead of building it again. A caller waiting longer than the configured timeout builds the
+ * value itself. There is no global lock, only one in-flight entry per key.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class SingleFlight {
+
+    private final boolean enabled;
+
+    private final long timeoutMillis;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * Constructor, reading <code>auth0.singleFlight.*</code> properties and reporting its statistics.
+     *
+     * @param properties
+     *            Ninja's properties
+     * @param metrics
+     *            metrics recorder
+     */
+    @Inject
+    public SingleFlight(NinjaProperties properties, Auth0Metrics metrics) {
+        this(properties.getBooleanWithDefault("auth0.singleFlight.enabled", false), properties.getIntegerWithDefault("auth0.singleFlight.timeout", 5));
+        if (enabled) {
+            metrics.gauge("singleFlight.coalesced", this::getCoalesced);
+            metrics.gauge("singleFlight.timeouts", this::getTimeouts);
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param enabled
+     *            false to build every value independently
+     * @param timeoutSeconds
+     *            maximum time a caller waits for the build of another one, in seconds
+     */
+    public SingleFlight(boolean enabled, long timeoutSeconds) {
+        this.enabled = enabled;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+    }
+
+    /**
+     * @return true if builds are coalesced
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Builds a value, or waits for the build already in progress for the same key.
+     *
+     * @param key
+     *            build key
+     * @param build
+     *            value builder
+     * @return the value built by this caller or by a concurrent one
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> build) {
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, flight);
+
+        if (existing == null) {
+            try {
+                T value = build.get();
+                flight.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+
+        coalesced.increment();
+        try {
+
+            return (T) existing.get(timeoutMillis, TimeUnit.MILLISECONDS);
+
+        } catch (TimeoutException e) {
+
+            timeouts.increment();
+            return build.get();
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a concurrent build", e);
+
+        } catch (ExecutionException e) {
+
+            // Same input, same failure
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+
+        }
+
+    }
+
+    /**
+     * @return number of callers that waited for the build of another one
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of callers that stopped waiting and built the value themselves
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * @return number of builds in progress
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+}
@@ -0,0 +1,290 @@
+package net.zileo.ninja.auth0.cache;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.cache.InvalidationBroadcaster.Invalidation;
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import net.zileo.ninja.auth0.subject.Subject;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Bounded cache of already built Subjects, keyed by a digest of their Id Token. An entry never outlives the expiry
+ * time of its token, nor the configured time to live. When the cache is full, the oldest entries are evicted first.
+ * <p>
+ * This in-process cache can be backed by a {@link SharedSubjectCache}, looked up on local misses, so that a Subject is
+ * only built once for all the nodes of an application. Invalidations are then sent to the other nodes through the
+ * {@link InvalidationBroadcaster}, if any.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class SubjectCache {
+
+    private final boolean enabled;
+
+    private final long ttlMillis;
+
+    private final BoundedExpiringMap<CachedSubject> entries;
+
+    private final LongAdder sharedHits = new LongAdder();
+
+    private SharedSubjectCache sharedCache;
+
+    private InvalidationBroadcaster broadcaster;
+
+    /**
+     * Constructor, reading <code>auth0.cache.*</code> properties.
+     *
+     * @param properties
+     *            Ninja's properties
+     */
+    public SubjectCache(NinjaProperties properties) {
+        this(properties.getBooleanWithDefault("auth0.cache.enabled", false), properties.getIntegerWithDefault("auth0.cache.maxSize", 10000),
+                properties.getIntegerWithDefault("auth0.cache.ttl", 300));
+    }
+
+    /**
+     * Constructor, reading <code>auth0.cache.*</code> properties and reporting cache statistics.
+     *
+     * @param properties
+     *            Ninja's properties
+     * @param metrics
+     *            metrics recorder
+     */
+    @Inject
+    public SubjectCache(NinjaProperties properties, Auth0Metrics metrics) {
+        this(properties);
+        if (enabled) {
+            metrics.gauge("cache.size", this::size);
+            metrics.gauge("cache.hitRatio", this::getHitRatio);
+            metrics.gauge("cache.evictions", this::getEvictions);
+            metrics.gauge("cache.sharedHits", this::getSharedHits);
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param enabled
+     *            false to bypass the cache entirely
+     * @param maxSize
+     *            maximum number of cached Subjects
+     * @param ttlSeconds
+     *            maximum time to live of an entry, in seconds
+     */
+    public SubjectCache(boolean enabled, int maxSize, long ttlSeconds) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Subject cache size must be positive");
+        }
+        this.enabled = enabled;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.entries = new BoundedExpiringMap<>(maxSize);
+    }
+
+    /**
+     * Sets the shared second level cache (injected by Guice if bound, but can be set manually).
+     *
+     * @param sharedCache
+     *            shared cache, or null to only cache Subjects locally
+     */
+    @Inject(optional = true)
+    public void setSharedCache(SharedSubjectCache sharedCache) {
+        this.sharedCache = sharedCache;
+    }
+
+    /**
+     * Sets the invalidation broadcaster (injected by Guice if bound, but can be set manually), and listens to the
+     * invalidations sent by other nodes.
+     *
+     * @param broadcaster
+     *            invalidation broadcaster, or null to only invalidate Subjects locally
+     */
+    @Inject(optional = true)
+    public void setBroadcaster(InvalidationBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+        if (broadcaster != null) {
+            broadcaster.subscribe(this::evict);
+        }
+    }
+
+    /**
+     * @return true if Subjects should be cached
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Retrieves a cached Subject.
+     *
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     * @return cached Subject, or null if absent or expired
+     */
+    public Subject get(String key) {
+
+        CachedSubject cached = entries.get(key);
+
+        if (cached == null && sharedCache != null) {
+            cached = sharedCache.get(key);
+            if (cached != null) {
+                sharedHits.increment();
+                entries.put(key, cached, Math.min(cached.getExpiresAt(), System.currentTimeMillis() + ttlMillis));
+            }
+        }
+
+        return cached != null ? cached.getSubject() : null;
+
+    }
+
+    /**
+     * Caches a Subject until the given expiry date, or until the configured time to live if sooner.
+     *
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     * @param subject
+     *            built Subject
+     * @param tokenExpiresAt
+     *            expiry date of the token, may be null
+     */
+    public void put(String key, Subject subject, Date tokenExpiresAt) {
+
+        put(key, null, subject, tokenExpiresAt);
+
+    }
+
+    /**
+     * Caches a Subject until the given expiry date, or until the configured time to live if sooner, in both cache
+     * levels.
+     *
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     * @param userId
+     *            Auth0 user id, needed by {@link #invalidateUser(String)}
+     * @param subject
+     *            built Subject
+     * @param tokenExpiresAt
+     *            expiry date of the token, may be null
+     */
+    public void put(String key, String userId, Subject subject, Date tokenExpiresAt) {
+
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        if (tokenExpiresAt != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiresAt.getTime());
+        }
+
+        CachedSubject cached = new CachedSubject(userId, subject, expiresAt);
+        entries.put(key, cached, expiresAt);
+        if (sharedCache != null) {
+            sharedCache.put(key, cached);
+        }
+
+    }
+
+    /**
+     * Removes a Subject from the cache, on all nodes.
+     *
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     */
+    public void invalidate(String key) {
+
+        if (sharedCache != null) {
+            sharedCache.remove(key);
+        }
+        publish(Invalidation.ofToken(key));
+
+    }
+
+    /**
+     * Removes all the Subjects of a user from the cache, on all nodes. Call it once the profile of a user has changed.
+     *
+     * @param userId
+     *            Auth0 user id
+     */
+    public void invalidateUser(String userId) {
+
+        if (sharedCache != null) {
+            sharedCache.removeUser(userId);
+        }
+        publish(Invalidation.ofUser(userId));
+
+    }
+
+    private void publish(Invalidation invalidation) {
+
+        if (broadcaster != null) {
+            broadcaster.broadcast(invalidation);
+        } else {
+            evict(invalidation);
+        }
+
+    }
+
+    private void evict(Invalidation invalidation) {
+
+        if (invalidation.isUser()) {
+            entries.removeValues(cached -> invalidation.getValue().equals(cached.getUserId()));
+        } else {
+            entries.remove(invalidation.getValue());
+        }
+
+    }
+
+    /**
+     * Removes all cached Subjects.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return number of cached Subjects (including expired ones not yet evicted)
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of lookups that returned a Subject, from either cache level
+     */
+    public long getHits() {
+        return entries.getHits() + sharedHits.sum();
+    }
+
+    /**
+     * @return number of lookups that did not return a Subject
+     */
+    public long getMisses() {
+        return entries.getMisses() - sharedHits.sum();
+    }
+
+    /**
+     * @return number of local misses found in the shared cache
+     */
+    public long getSharedHits() {
+        return sharedHits.sum();
+    }
+
+    /**
+     * @return ratio of lookups that returned a Subject, between 0 and 1
+     */
+    public double getHitRatio() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return number of entries removed because of their expiry or of the size limit
+     */
+    public long getEvictions() {
+        return entries.getEvictions();
+    }
+
+}
@@ -0,0 +1,60 @@
+package net.zileo.ninja.auth0.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Computes compact digests of Id Tokens, used as keys by the caches of this module so that raw tokens are never kept
+ * in memory longer than needed.
+ *
+ * @author jlannoy
+ */
+public final class TokenDigest {
+
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static final byte[] BEARER_SCOPE = "bearer:".getBytes(StandardCharsets.US_ASCII);
+
+    private TokenDigest() {}
+
+    /**
+     * Computes the SHA-256 digest of a token.
+     *
+     * @param token
+     *            a JSON Web Token
+     * @return a Base64 (URL safe, no padding) digest
+     */
+    public static String of(String token) {
+
+        MessageDigest digest = DIGESTS.get();
+        digest.reset();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+
+    }
+
+    /**
+     * Computes the digest of a token sent as a bearer token, distinct from its {@link #of(String)} digest so that
+     * bearer and session tokens never share cache entries.
+     *
+     * @param token
+     *            a JSON Web Token
+     * @return a Base64 (URL safe, no padding) digest
+     */
+    public static String ofBearer(String token) {
+
+        MessageDigest digest = DIGESTS.get();
+        digest.reset();
+        digest.update(BEARER_SCOPE);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+
+    }
+
+}
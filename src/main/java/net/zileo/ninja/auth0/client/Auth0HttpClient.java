@@ -0,0 +1,139 @@
+package net.zileo.ninja.auth0.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import ninja.lifecycle.Dispose;
+import ninja.utils.NinjaProperties;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+
+/**
+ * HTTP client shared by all the calls made to Auth0 (code exchanges, JWKS fetches...), so that they reuse the same
+ * pool of kept-alive connections instead of paying a TLS handshake each time. Configured by the
+ * <code>auth0.http.*</code> properties.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class Auth0HttpClient {
+
+    private final ConnectionPool connectionPool;
+
+    private final OkHttpClient client;
+
+    private final LongAdder calls = new LongAdder();
+
+    private final AtomicInteger inFlightCalls = new AtomicInteger();
+
+    /**
+     * Constructor, reading <code>auth0.http.*</code> properties.
+     *
+     * @param properties
+     *            Ninja's properties
+     */
+    public Auth0HttpClient(NinjaProperties properties) {
+        this(properties.getIntegerWithDefault("auth0.http.connectTimeout", 5), properties.getIntegerWithDefault("auth0.http.readTimeout", 10),
+                properties.getIntegerWithDefault("auth0.http.maxIdleConnections", 5), properties.getIntegerWithDefault("auth0.http.keepAlive", 300));
+    }
+
+    /**
+     * Constructor, reading <code>auth0.http.*</code> properties and reporting pool statistics.
+     *
+     * @param properties
+     *            Ninja's properties
+     * @param metrics
+     *            metrics recorder
+     */
+    @Inject
+    public Auth0HttpClient(NinjaProperties properties, Auth0Metrics metrics) {
+        this(properties);
+        metrics.gauge("http.connections", this::getConnectionCount);
+        metrics.gauge("http.activeConnections", this::getActiveConnectionCount);
+        metrics.gauge("http.inFlightCalls", this::getInFlightCalls);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param connectTimeoutSeconds
+     *            connect timeout, in seconds
+     * @param readTimeoutSeconds
+     *            read timeout, in seconds
+     * @param maxIdleConnections
+     *            maximum number of idle connections kept alive
+     * @param keepAliveSeconds
+     *            time an idle connection is kept alive, in seconds
+     */
+    public Auth0HttpClient(int connectTimeoutSeconds, int readTimeoutSeconds, int maxIdleConnections, long keepAliveSeconds) {
+
+        this.connectionPool = new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS);
+        this.client = new OkHttpClient.Builder().connectionPool(connectionPool).connectTimeout(connectTimeoutSeconds, TimeUnit.SECONDS)
+                .readTimeout(readTimeoutSeconds, TimeUnit.SECONDS).addInterceptor(chain -> {
+                    calls.increment();
+                    inFlightCalls.incrementAndGet();
+                    try {
+                        return chain.proceed(chain.request());
+                    } finally {
+                        inFlightCalls.decrementAndGet();
+                    }
+                }).build();
+
+    }
+
+    /**
+     * @return the shared HTTP client
+     */
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return number of open connections, idle or in use
+     */
+    public int getConnectionCount() {
+        return connectionPool.connectionCount();
+    }
+
+    /**
+     * @return number of open idle connections
+     */
+    public int getIdleConnectionCount() {
+        return connectionPool.idleConnectionCount();
+    }
+
+    /**
+     * @return number of connections currently in use
+     */
+    public int getActiveConnectionCount() {
+        return Math.max(0, connectionPool.connectionCount() - connectionPool.idleConnectionCount());
+    }
+
+    /**
+     * @return number of calls made
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * @return number of calls in progress
+     */
+    public int getInFlightCalls() {
+        return inFlightCalls.get();
+    }
+
+    /**
+     * Closes the idle connections.
+     */
+    @Dispose
+    public void stop() {
+        connectionPool.evictAll();
+    }
+
+}
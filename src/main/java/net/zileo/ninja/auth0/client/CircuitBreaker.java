@@ -0,0 +1,80 @@
+package net.zileo.ninja.auth0.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal circuit breaker : after a given number of consecutive failures, calls are refused for a given duration. Then
+ * a single trial call is let through ; its success closes the circuit, its failure opens it again.
+ *
+ * @author jlannoy
+ */
+public class CircuitBreaker {
+
+    private final int failureThreshold;
+
+    private final long openMillis;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /** Time until which calls are refused, 0 when closed */
+    private final AtomicLong openUntil = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param failureThreshold
+     *            number of consecutive failures opening the circuit
+     * @param openSeconds
+     *            time during which calls are refused once open, in seconds
+     */
+    public CircuitBreaker(int failureThreshold, long openSeconds) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = TimeUnit.SECONDS.toMillis(openSeconds);
+    }
+
+    /**
+     * @return true if a call may be attempted ; when the open duration has elapsed, only the first caller gets true
+     */
+    public boolean allowRequest() {
+
+        long until = openUntil.get();
+        if (until == 0) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        // Half open : let one trial through, and keep refusing the others until it completes
+        return now >= until && openUntil.compareAndSet(until, now + openMillis);
+
+    }
+
+    /**
+     * Records a successful call, closing the circuit.
+     */
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        openUntil.set(0);
+    }
+
+    /**
+     * Records a failed call, opening the circuit if the threshold is reached.
+     */
+    public void onFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openUntil.set(System.currentTimeMillis() + openMillis);
+        }
+    }
+
+    /**
+     * @return true if calls are currently refused
+     */
+    public boolean isOpen() {
+        return openUntil.get() != 0;
+    }
+
+}
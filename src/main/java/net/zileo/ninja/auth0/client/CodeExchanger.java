@@ -0,0 +1,353 @@
+package net.zileo.ninja.auth0.client;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.auth0.exception.APIException;
+import com.auth0.exception.Auth0Exception;
+import com.auth0.json.auth.TokenHolder;
+import com.auth0.net.TokenRequest;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import ninja.lifecycle.Dispose;
+import ninja.utils.NinjaProperties;
+import okhttp3.OkHttpClient;
+
+/**
+ * Exchanges authorization codes (and refresh tokens) for tokens on a dedicated, bounded pool of threads, so that a
+ * slow or unavailable Auth0 domain can only hold a limited number of request threads :
+ * <ul>
+ * <li>when all exchange threads are busy and the waiting queue is full, the exchange is refused immediately ;</li>
+ * <li>a caller never waits more than the configured timeout ;</li>
+ * <li>after several consecutive failures, exchanges are refused without calling Auth0 for a while (circuit
+ * breaker).</li>
+ * </ul>
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class CodeExchanger {
+
+    private final static Logger logger = LoggerFactory.getLogger(CodeExchanger.class);
+
+    private OkHttpClient client;
+
+    private String tokenUrl;
+
+    private String clientId;
+
+    private String clientSecret;
+
+    private ThreadPoolExecutor executor;
+
+    private CircuitBreaker circuitBreaker;
+
+    private long timeoutMillis;
+
+    private final LongAdder exchanges = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder rejections = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private final LongAdder totalLatency = new LongAdder();
+
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    @Inject
+    public void init(NinjaProperties properties, Auth0HttpClient httpClient, Auth0Metrics metrics, @Named("auth0.domain") String domain,
+            @Named("auth0.clientId") String clientId, @Named("auth0.clientSecret") String clientSecret) {
+
+        configure(httpClient.getClient(), "https://" + domain + "/oauth/token", clientId, clientSecret);
+        configure(properties.getIntegerWithDefault("auth0.exchange.threads", 4), properties.getIntegerWithDefault("auth0.exchange.queueSize", 50),
+                properties.getIntegerWithDefault("auth0.exchange.timeout", 15), new CircuitBreaker(properties.getIntegerWithDefault("auth0.exchange.failureThreshold", 5),
+                        properties.getIntegerWithDefault("auth0.exchange.openDuration", 30)));
+
+        metrics.gauge("exchange.queueDepth", this::getQueueDepth);
+        metrics.gauge("exchange.active", this::getActiveCount);
+        metrics.gauge("exchange.rejections", this::getRejections);
+        metrics.gauge("exchange.circuitOpen", () -> isCircuitOpen() ? 1 : 0);
+
+    }
+
+    /**
+     * Sets the Auth0 token endpoint.
+     *
+     * @param client
+     *            HTTP client (see {@link Auth0HttpClient})
+     * @param tokenUrl
+     *            token endpoint URL
+     * @param clientId
+     *            Auth0 client id
+     * @param clientSecret
+     *            Auth0 client secret
+     */
+    public void configure(OkHttpClient client, String tokenUrl, String clientId, String clientSecret) {
+        this.client = client;
+        this.tokenUrl = tokenUrl;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+    }
+
+    /**
+     * Sets the exchange pool.
+     *
+     * @param threads
+     *            maximum number of concurrent exchanges
+     * @param queueSize
+     *            maximum number of exchanges waiting for a thread
+     * @param timeoutSeconds
+     *            maximum time a caller waits for an exchange, in seconds
+     * @param circuitBreaker
+     *            circuit breaker
+     */
+    public void configure(int threads, int queueSize, long timeoutSeconds, CircuitBreaker circuitBreaker) {
+
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "auth0-exchange-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+
+        stop();
+        this.executor = executor;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        this.circuitBreaker = circuitBreaker;
+
+    }
+
+    /**
+     * Exchanges an authorization code for tokens.
+     *
+     * @param code
+     *            authorization code received by the callback
+     * @param redirectUri
+     *            callback URL given to the authorize request
+     * @throws Auth0Exception
+     *             if the exchange failed, timed out or was refused
+     * @return received tokens
+     */
+    public TokenHolder exchange(String code, String redirectUri) throws Auth0Exception {
+
+        return call(() -> execute(code, redirectUri), "code exchange");
+
+    }
+
+    /**
+     * Exchanges a refresh token for a new Id Token, on the same threads and under the same limits as code exchanges.
+     *
+     * @param refreshToken
+     *            refresh token received along with the first Id Token (<code>offline_access</code> scope)
+     * @throws Auth0Exception
+     *             if the exchange failed, timed out or was refused
+     * @return received tokens
+     */
+    public TokenHolder refresh(String refreshToken) throws Auth0Exception {
+
+        return call(() -> executeRefresh(refreshToken), "token refresh");
+
+    }
+
+    private TokenHolder call(Callable<TokenHolder> exchange, String label) throws Auth0Exception {
+
+        if (!circuitBreaker.allowRequest()) {
+            rejections.increment();
+            throw new Auth0Exception("Auth0 is currently unavailable, please retry later");
+        }
+
+        long start = System.nanoTime();
+        Future<TokenHolder> future;
+        try {
+            future = executor.submit(exchange);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new Auth0Exception("Too many pending logins, please retry later", e);
+        }
+
+        try {
+
+            TokenHolder token = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            circuitBreaker.onSuccess();
+            return token;
+
+        } catch (TimeoutException e) {
+
+            future.cancel(true);
+            timeouts.increment();
+            onFailure(e);
+            throw new Auth0Exception("Auth0 " + label + " timed out", e);
+
+        } catch (InterruptedException e) {
+
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new Auth0Exception("Interrupted during " + label, e);
+
+        } catch (ExecutionException e) {
+
+            Throwable cause = e.getCause();
+            // Errors reported by Auth0 about the request itself (invalid code...) don't mean Auth0 is degraded
+            if (cause instanceof APIException && ((APIException) cause).getStatusCode() < 500) {
+                circuitBreaker.onSuccess();
+            } else {
+                onFailure(cause);
+            }
+            throw cause instanceof Auth0Exception ? (Auth0Exception) cause : new Auth0Exception("Auth0 " + label + " failed", cause);
+
+        } finally {
+
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            exchanges.increment();
+            totalLatency.add(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+
+        }
+
+    }
+
+    private void onFailure(Throwable cause) {
+        failures.increment();
+        circuitBreaker.onFailure();
+        if (circuitBreaker.isOpen()) {
+            logger.warn("Auth0 code exchange failing, refusing exchanges for a while : {}", cause.toString());
+        }
+    }
+
+    /**
+     * Performs the exchange HTTP call, on an exchange thread.
+     *
+     * @param code
+     *            authorization code
+     * @param redirectUri
+     *            callback URL
+     * @throws Auth0Exception
+     *             if the call failed
+     * @return received tokens
+     */
+    protected TokenHolder execute(String code, String redirectUri) throws Auth0Exception {
+
+        TokenRequest request = new TokenRequest(client, tokenUrl);
+        request.addParameter("client_id", clientId);
+        request.addParameter("client_secret", clientSecret);
+        request.addParameter("grant_type", "authorization_code");
+        request.addParameter("code", code);
+        request.addParameter("redirect_uri", redirectUri);
+        return request.execute();
+
+    }
+
+    /**
+     * Performs the refresh HTTP call, on an exchange thread.
+     *
+     * @param refreshToken
+     *            refresh token
+     * @throws Auth0Exception
+     *             if the call failed
+     * @return received tokens
+     */
+    protected TokenHolder executeRefresh(String refreshToken) throws Auth0Exception {
+
+        TokenRequest request = new TokenRequest(client, tokenUrl);
+        request.addParameter("client_id", clientId);
+        request.addParameter("client_secret", clientSecret);
+        request.addParameter("grant_type", "refresh_token");
+        request.addParameter("refresh_token", refreshToken);
+        return request.execute();
+
+    }
+
+    /**
+     * @return number of exchanges waiting for a thread
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return number of exchanges in progress
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return number of attempted exchanges (successful or not, refused ones excluded)
+     */
+    public long getExchanges() {
+        return exchanges.sum();
+    }
+
+    /**
+     * @return number of failed or timed out exchanges
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return number of exchanges refused because of a full queue or an open circuit
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * @return number of exchanges the caller stopped waiting for
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * @return average exchange latency (queue wait included), in milliseconds
+     */
+    public long getAverageLatency() {
+        long count = exchanges.sum();
+        return count == 0 ? 0 : totalLatency.sum() / count;
+    }
+
+    /**
+     * @return maximum exchange latency (queue wait included), in milliseconds
+     */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    /**
+     * @return true if exchanges are currently refused by the circuit breaker
+     */
+    public boolean isCircuitOpen() {
+        return circuitBreaker.isOpen();
+    }
+
+    /**
+     * Stops the exchange threads.
+     */
+    @Dispose
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,339 @@
+package net.zileo.ninja.auth0.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.auth0.exception.Auth0Exception;
+import com.auth0.json.auth.TokenHolder;
+import com.auth0.net.TokenRequest;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import ninja.lifecycle.Dispose;
+import ninja.utils.NinjaProperties;
+import okhttp3.OkHttpClient;
+
+/**
+ * Provides machine to machine access tokens (client credentials grant) for calling downstream APIs, one per audience.
+ * Tokens are cached, and renewed in the background <code>auth0.m2m.refreshAhead</code> seconds (at most half of their
+ * lifetime) before they expire, as long as they are used. There is at most one request to Auth0 in progress per audience, concurrent callers
+ * sharing its result. The remaining lifetime of each token is reported as a <code>m2m.remainingLifetime.</code> gauge,
+ * suffixed by the audience.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class MachineTokenProvider {
+
+    private final static Logger logger = LoggerFactory.getLogger(MachineTokenProvider.class);
+
+    private final static long RETRY_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private OkHttpClient client;
+
+    private String tokenUrl;
+
+    private String clientId;
+
+    private String clientSecret;
+
+    private long refreshAheadMillis;
+
+    private long timeoutMillis;
+
+    private Auth0Metrics metrics = Auth0Metrics.NOOP;
+
+    private final ConcurrentHashMap<String, MachineToken> tokens = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, CompletableFuture<MachineToken>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicInteger threads = new AtomicInteger();
+
+    // Only triggers renewals, requests run on the fetcher threads
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "auth0-m2m-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // At most one request per audience, so that a slow audience doesn't hold the others
+    private final ExecutorService fetcher = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "auth0-m2m-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder fetches = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    @Inject
+    public void init(NinjaProperties properties, Auth0HttpClient httpClient, Auth0Metrics metrics, @Named("auth0.domain") String domain,
+            @Named("auth0.clientId") String clientId, @Named("auth0.clientSecret") String clientSecret) {
+
+        configure(httpClient.getClient(), "https://" + domain + "/oauth/token", clientId, clientSecret);
+        configure(properties.getIntegerWithDefault("auth0.m2m.refreshAhead", 60), properties.getIntegerWithDefault("auth0.m2m.timeout", 10));
+
+        this.metrics = metrics;
+        metrics.gauge("m2m.fetches", this::getFetches);
+        metrics.gauge("m2m.failures", this::getFailures);
+
+    }
+
+    /**
+     * Sets the Auth0 token endpoint.
+     *
+     * @param client
+     *            HTTP client (see {@link Auth0HttpClient})
+     * @param tokenUrl
+     *            token endpoint URL
+     * @param clientId
+     *            Auth0 client id, of a client authorized for the requested audiences
+     * @param clientSecret
+     *            Auth0 client secret
+     */
+    public void configure(OkHttpClient client, String tokenUrl, String clientId, String clientSecret) {
+        this.client = client;
+        this.tokenUrl = tokenUrl;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+    }
+
+    /**
+     * Sets the renewal delays.
+     *
+     * @param refreshAheadSeconds
+     *            how long before their expiry tokens are renewed, in seconds
+     * @param timeoutSeconds
+     *            maximum time a caller waits for a token, in seconds
+     */
+    public void configure(long refreshAheadSeconds, long timeoutSeconds) {
+        this.refreshAheadMillis = TimeUnit.SECONDS.toMillis(refreshAheadSeconds);
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+    }
+
+    /**
+     * Gets a valid access token for an API, requesting it to Auth0 only if not yet cached.
+     *
+     * @param audience
+     *            API identifier
+     * @throws Auth0Exception
+     *             if no token could be obtained
+     * @return access token
+     */
+    public String getAccessToken(String audience) throws Auth0Exception {
+
+        MachineToken token = tokens.get(audience);
+        if (token == null || token.getExpiresAt() <= System.currentTimeMillis()) {
+            token = await(fetch(audience));
+        }
+
+        token.used = true;
+        return token.getAccessToken();
+
+    }
+
+    /**
+     * @param audience
+     *            API identifier
+     * @return remaining lifetime of the cached token, in seconds, or 0 if none
+     */
+    public long getRemainingLifetime(String audience) {
+
+        MachineToken token = tokens.get(audience);
+        return token != null ? Math.max(0, TimeUnit.MILLISECONDS.toSeconds(token.getExpiresAt() - System.currentTimeMillis())) : 0;
+
+    }
+
+    private MachineToken await(CompletableFuture<MachineToken> fetch) throws Auth0Exception {
+
+        try {
+
+            return fetch.get(timeoutMillis, TimeUnit.MILLISECONDS);
+
+        } catch (TimeoutException e) {
+
+            throw new Auth0Exception("Auth0 access token request timed out", e);
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new Auth0Exception("Interrupted while requesting an access token", e);
+
+        } catch (ExecutionException e) {
+
+            Throwable cause = e.getCause();
+            throw cause instanceof Auth0Exception ? (Auth0Exception) cause : new Auth0Exception("Auth0 access token request failed", cause);
+
+        }
+
+    }
+
+    /**
+     * Starts a token request for an audience, or returns the one already in progress.
+     */
+    private CompletableFuture<MachineToken> fetch(String audience) {
+
+        CompletableFuture<MachineToken> fetch = new CompletableFuture<>();
+        CompletableFuture<MachineToken> existing = inFlight.putIfAbsent(audience, fetch);
+        if (existing != null) {
+            return existing;
+        }
+
+        fetcher.execute(() -> {
+            try {
+                fetch.complete(request(audience));
+            } catch (Auth0Exception | RuntimeException e) {
+                fetch.completeExceptionally(e);
+            } finally {
+                inFlight.remove(audience, fetch);
+            }
+        });
+        return fetch;
+
+    }
+
+    private MachineToken request(String audience) throws Auth0Exception {
+
+        fetches.increment();
+        TokenHolder holder;
+        try {
+            holder = execute(audience);
+        } catch (Auth0Exception | RuntimeException e) {
+            failures.increment();
+            throw e;
+        }
+
+        long lifetimeMillis = TimeUnit.SECONDS.toMillis(holder.getExpiresIn());
+        MachineToken token = new MachineToken(holder.getAccessToken(), System.currentTimeMillis() + lifetimeMillis);
+        if (tokens.put(audience, token) == null) {
+            metrics.gauge("m2m.remainingLifetime." + audience, () -> getRemainingLifetime(audience));
+        }
+
+        // Short-lived tokens are not renewed as soon as obtained
+        schedule(audience, token, lifetimeMillis - Math.min(refreshAheadMillis, lifetimeMillis / 2));
+        return token;
+
+    }
+
+    private void schedule(String audience, MachineToken token, long delayMillis) {
+
+        try {
+            scheduler.schedule(() -> refresh(audience, token), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Stopped while fetching, the token is still returned but not renewed
+        }
+
+    }
+
+    /**
+     * Renews a token about to expire, unless replaced or unused since it was obtained. On failure, the renewal is
+     * retried while the current token is still valid.
+     */
+    private void refresh(String audience, MachineToken token) {
+
+        if (tokens.get(audience) != token) {
+            return;
+        }
+        if (!token.used) {
+            tokens.remove(audience, token);
+            return;
+        }
+
+        fetch(audience).whenComplete((renewed, e) -> {
+            if (e != null) {
+                long remaining = token.getExpiresAt() - System.currentTimeMillis();
+                logger.warn("Unable to renew the access token of {} : {}", audience, e.toString());
+                if (remaining > 0) {
+                    schedule(audience, token, Math.min(RETRY_MILLIS, remaining / 2));
+                }
+            }
+        });
+
+    }
+
+    /**
+     * Performs the client credentials HTTP call.
+     *
+     * @param audience
+     *            API identifier
+     * @throws Auth0Exception
+     *             if the call failed
+     * @return received tokens
+     */
+    protected TokenHolder execute(String audience) throws Auth0Exception {
+
+        TokenRequest request = new TokenRequest(client, tokenUrl);
+        request.addParameter("client_id", clientId);
+        request.addParameter("client_secret", clientSecret);
+        request.addParameter("grant_type", "client_credentials");
+        request.addParameter("audience", audience);
+        return request.execute();
+
+    }
+
+    /**
+     * @return number of tokens requested to Auth0
+     */
+    public long getFetches() {
+        return fetches.sum();
+    }
+
+    /**
+     * @return number of failed token requests
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Stops the renewal threads.
+     */
+    @Dispose
+    public void stop() {
+        scheduler.shutdownNow();
+        fetcher.shutdownNow();
+    }
+
+    /**
+     * Cached access token.
+     */
+    private static final class MachineToken {
+
+        private final String accessToken;
+
+        private final long expiresAt;
+
+        private volatile boolean used;
+
+        private MachineToken(String accessToken, long expiresAt) {
+            this.accessToken = accessToken;
+            this.expiresAt = expiresAt;
+        }
+
+        private String getAccessToken() {
+            return accessToken;
+        }
+
+        private long getExpiresAt() {
+            return expiresAt;
+        }
+
+    }
+
+}
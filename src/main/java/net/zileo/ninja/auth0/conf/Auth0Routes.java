@@ -3,6 +3,7 @@ package net.zileo.ninja.auth0.conf;
 import com.google.inject.Inject;
 
 import net.zileo.ninja.auth0.controllers.Auth0Controller;
+import net.zileo.ninja.auth0.controllers.Auth0MetricsController;
 import ninja.Filter;
 import ninja.Router;
 import ninja.utils.NinjaProperties;
@@ -26,6 +27,11 @@ public class Auth0Routes {
         router.GET().route("/auth0/logout").globalFilters().filters(filters).with(Auth0Controller::logout);
         router.GET().route("/auth0/out").globalFilters().filters(filters).with(Auth0Controller::loggedOut);
 
+        String metricsRoute = ninjaProperties.get("auth0.metrics.route");
+        if (metricsRoute != null) {
+            router.GET().route(metricsRoute).globalFilters().filters(filters).with(Auth0MetricsController::metrics);
+        }
+
         if (!ninjaProperties.isProd()) {
             router.GET().route("/auth0/simulate").globalFilters().filters(filters).with(Auth0Controller::simulateLogin);
             router.GET().route("/auth0/simulate/{value}").globalFilters().filters(filters).with(Auth0Controller::simulate);
@@ -1,20 +1,26 @@
 package net.zileo.ninja.auth0.controllers;
 
 import java.io.UnsupportedEncodingException;
-
-import javax.inject.Named;
+import java.util.Date;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.auth0.client.auth.AuthAPI;
 import com.auth0.exception.Auth0Exception;
 import com.auth0.json.auth.TokenHolder;
-import com.auth0.jwt.algorithms.Algorithm;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 
+import net.zileo.ninja.auth0.cache.SubjectCache;
+import net.zileo.ninja.auth0.cache.TokenDigest;
+import net.zileo.ninja.auth0.client.CodeExchanger;
 import net.zileo.ninja.auth0.handlers.Auth0TokenHandler;
+import net.zileo.ninja.auth0.jwt.Auth0TokenVerifier;
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import net.zileo.ninja.auth0.revocation.RevocationList;
+import net.zileo.ninja.auth0.store.SessionTokens;
+import net.zileo.ninja.auth0.store.TokenRenewer;
+import net.zileo.ninja.auth0.subject.AuthenticationResult;
 import net.zileo.ninja.auth0.subject.Subject;
 import ninja.Context;
 import ninja.Result;
@@ -43,31 +49,69 @@ public class Auth0Controller {
     @Inject
     protected ReverseRouter reverseRouter;
 
-    private boolean forceHttps;
-
     private String loggedOutPage;
 
     @Inject
     private Auth0TokenHandler<? extends Subject> tokenHandler;
 
-    private AuthAPI auth;
+    @Inject
+    private SessionTokens sessionTokens;
+
+    @Inject
+    private CodeExchanger codeExchanger;
+
+    @Inject
+    private SubjectCache subjectCache;
 
-    private Algorithm algorithm;
+    @Inject
+    private RedirectUrls redirectUrls;
 
     @Inject
-    public void init(NinjaProperties properties, @Named("auth0.domain") String domain, @Named("auth0.clientId") String clientId, @Named("auth0.clientSecret") String clientSecret)
-            throws IllegalArgumentException, UnsupportedEncodingException {
+    private TokenRenewer tokenRenewer;
 
-        this.auth = new AuthAPI(domain, clientId, clientSecret);
-        this.algorithm = Algorithm.HMAC256(clientSecret);
+    @Inject
+    private RevocationList revocationList;
+
+    @Inject
+    private Auth0Metrics metrics;
+
+    @Inject
+    private Auth0TokenVerifier tokenVerifier;
+
+    @Inject
+    public void init(NinjaProperties properties) {
 
         this.loggedOutPage = properties.getWithDefault("auth0.loggedOut", "/");
-        this.forceHttps = properties.getBooleanWithDefault("auth0.forceHttps", false);
 
     }
 
     /**
-     * Get configured Auth0 callback route.
+     * Former initialization, kept for subclasses calling or overriding it. The Auth0 client is now held by
+     * {@link RedirectUrls} and the code exchange done by {@link CodeExchanger}, so the Auth0 settings are ignored here.
+     * 
+     * @param properties
+     *            Ninja's properties
+     * @param domain
+     *            Auth0 domain, ignored
+     * @param clientId
+     *            Auth0 client id, ignored
+     * @param clientSecret
+     *            Auth0 client secret, ignored
+     * @throws IllegalArgumentException
+     *             never thrown anymore
+     * @throws UnsupportedEncodingException
+     *             never thrown anymore
+     * @deprecated use {@link #init(NinjaProperties)}, called by Guice
+     */
+    @Deprecated
+    public void init(NinjaProperties properties, String domain, String clientId, String clientSecret) throws IllegalArgumentException, UnsupportedEncodingException {
+
+        init(properties);
+
+    }
+
+    /**
+     * Get configured Auth0 callback route (see {@link RedirectUrls}).
      * 
      * @param context
      *            current Ninja's context
@@ -75,12 +119,12 @@ public class Auth0Controller {
      */
     protected String getCallbackUrl(Context context) {
 
-        return reverseRouter.with(Auth0Controller::callback).absolute(forceHttps ? "https" : context.getScheme(), context.getHostname()).build();
+        return redirectUrls.of(context).getCallbackUrl();
 
     }
 
     /**
-     * Get configured Auth0 logged out route.
+     * Get configured Auth0 logged out route (see {@link RedirectUrls}).
      * 
      * @param context
      *            current Ninja's context
@@ -88,7 +132,7 @@ public class Auth0Controller {
      */
     protected String getLoggedOutUrl(Context context) {
 
-        return reverseRouter.with(Auth0Controller::loggedOut).absolute(forceHttps ? "https" : context.getScheme(), context.getHostname()).build();
+        return redirectUrls.of(context).getLoggedOutUrl();
 
     }
 
@@ -103,12 +147,13 @@ public class Auth0Controller {
      */
     public Result login(Context context, Session session) {
 
-        return Results.redirect(auth.authorizeUrl(getCallbackUrl(context)).withResponseType("code").withScope(tokenHandler.getScope()).build());
+        return Results.redirect(redirectUrls.getAuthorizeUrl(context));
 
     }
 
     /**
-     * Callback called by Auth0 once a user has been authenticated. The Auth0 code will be exchanged with an id token.
+     * Callback called by Auth0 once a user has been authenticated. The Auth0 code will be exchanged with an id token
+     * (see {@link CodeExchanger}).
      * 
      * @param context
      *            current Ninja's context
@@ -119,31 +164,42 @@ public class Auth0Controller {
     public Result callback(Context context, Session session) {
 
         if (context.getParameter("error") != null) {
+            metrics.increment(Auth0Metrics.CALLBACK_FAILURE);
             throw new ForbiddenRequestException(context.getParameter("error_description"));
         }
 
         if (context.getParameter("code") == null) {
+            metrics.increment(Auth0Metrics.CALLBACK_FAILURE);
             throw new ForbiddenRequestException("No authorization code received");
         }
 
         try {
 
-            TokenHolder token = auth.exchangeCode(context.getParameter("code"), getCallbackUrl(context)).execute();
-
-            // Check that we are able to provision one Subject from the received id token
+            long start = System.nanoTime();
+            TokenHolder token;
             try {
+                token = codeExchanger.exchange(context.getParameter("code"), getCallbackUrl(context));
+            } finally {
+                metrics.record(Auth0Metrics.CALLBACK_EXCHANGE, System.nanoTime() - start);
+            }
 
-                tokenHandler.buildSubject(context, token.getIdToken());
-
-            } catch (IllegalArgumentException e) {
+            // Check that we are able to provision one Subject from the received id token
+            AuthenticationResult<? extends Subject> result = tokenHandler.authenticate(context, token.getIdToken());
+            if (!result.isSuccess()) {
 
+                metrics.increment(Auth0Metrics.CALLBACK_FAILURE);
                 session.clear();
-                throw new ForbiddenRequestException(e.getMessage(), e);
+                throw new ForbiddenRequestException(result.getMessage());
 
             }
 
-            session.put(SESSION_ID_TOKEN, token.getIdToken());
-            session.setExpiryTime(token.getExpiresIn() * 1000);
+            // A renewable token lets the session live as long as configured for the application
+            String refreshToken = tokenRenewer.isEnabled() ? token.getRefreshToken() : null;
+            sessionTokens.save(session, token.getIdToken(), refreshToken, result.getSubject(), new Date(System.currentTimeMillis() + token.getExpiresIn() * 1000));
+            if (refreshToken == null) {
+                session.setExpiryTime(token.getExpiresIn() * 1000);
+            }
+            metrics.increment(Auth0Metrics.CALLBACK_SUCCESS);
 
             String targetUrl = session.remove(SESSION_TARGET_URL);
             logger.debug("ID token set, redirecting to requested path ({})", targetUrl);
@@ -151,6 +207,7 @@ public class Auth0Controller {
 
         } catch (Auth0Exception e) {
 
+            metrics.increment(Auth0Metrics.CALLBACK_FAILURE);
             throw new InternalServerErrorException(e.getMessage());
 
         }
@@ -158,7 +215,8 @@ public class Auth0Controller {
     }
 
     /**
-     * Redirects to the Auth0 log out URL.
+     * Redirects to the Auth0 log out URL. The Subject cached for the current token is evicted on all nodes, and the
+     * token is revoked if the {@link RevocationList} is enabled.
      * 
      * @param context
      *            current Ninja's context
@@ -169,8 +227,17 @@ public class Auth0Controller {
     public Result logout(Context context, Session session) {
 
         if (session.get(SESSION_ID_TOKEN) != null) {
+            // Not renewed, the token in use being the one to revoke
+            String idToken = sessionTokens.peek(session);
+            if (idToken != null && revocationList.isEnabled()) {
+                revocationList.revokeToken(idToken);
+            }
+            if (idToken != null && subjectCache.isEnabled()) {
+                subjectCache.invalidate(TokenDigest.of(idToken));
+            }
+            sessionTokens.remove(session);
             session.clear();
-            return Results.redirect(auth.logoutUrl(getLoggedOutUrl(context), true).useFederated(true).build());
+            return Results.redirect(redirectUrls.of(context).getLogoutUrl());
 
         } else {
             session.clear();
@@ -217,7 +284,7 @@ public class Auth0Controller {
             throw new IllegalArgumentException("Empty simulated value");
         }
 
-        session.put(SESSION_ID_TOKEN, tokenHandler.buildSimulatedJWT(context, value, Maps.newHashMap()).sign(algorithm));
+        sessionTokens.save(session, tokenHandler.buildSimulatedJWT(context, value, Maps.newHashMap()).sign(tokenVerifier.getClientSecretAlgorithm()), null, null);
 
         String targetUrl = session.remove(SESSION_TARGET_URL);
         logger.debug("ID token set, redirecting to requested path ({})", targetUrl);
@@ -0,0 +1,30 @@
+package net.zileo.ninja.auth0.controllers;
+
+import com.google.inject.Inject;
+
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import ninja.Result;
+import ninja.Results;
+
+/**
+ * Ninja's controller exposing the metrics of this module as JSON (see {@link Auth0Metrics}).
+ * 
+ * @author jlannoy
+ */
+public class Auth0MetricsController {
+
+    @Inject
+    private Auth0Metrics metrics;
+
+    /**
+     * Renders current metrics values.
+     * 
+     * @return a request Result
+     */
+    public Result metrics() {
+
+        return Results.json().render(metrics.snapshot());
+
+    }
+
+}
@@ -0,0 +1,238 @@
+package net.zileo.ninja.auth0.controllers;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+import javax.inject.Named;
+
+import com.auth0.client.auth.AuthAPI;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.cache.BoundedExpiringMap;
+import net.zileo.ninja.auth0.handlers.Auth0TokenHandler;
+import net.zileo.ninja.auth0.store.TokenRenewer;
+import net.zileo.ninja.auth0.subject.Subject;
+import ninja.Context;
+import ninja.ReverseRouter;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Absolute URLs used by {@link Auth0Controller} : callback and logged out routes, Auth0 authorize and logout URLs.
+ * They only depend on the scheme and host of the request, so they are built once per (scheme, host) and kept in a
+ * small bounded map, the host header being client provided. The login request parameters listed in
+ * <code>auth0.login.parameters</code> are then appended to the cached authorize URL.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class RedirectUrls {
+
+    private static final int MAX_ORIGINS = 32;
+
+    private static final String[] NO_PARAMETERS = new String[0];
+
+    private final BoundedExpiringMap<Origin> origins = new BoundedExpiringMap<>(MAX_ORIGINS);
+
+    private ReverseRouter reverseRouter;
+
+    private String domain;
+
+    private String clientId;
+
+    private String clientSecret;
+
+    private volatile AuthAPI auth;
+
+    private String scope;
+
+    private boolean forceHttps;
+
+    private String[] parameters = NO_PARAMETERS;
+
+    @Inject
+    public void init(NinjaProperties properties, ReverseRouter reverseRouter, Auth0TokenHandler<? extends Subject> tokenHandler, TokenRenewer tokenRenewer,
+            @Named("auth0.domain") String domain, @Named("auth0.clientId") String clientId, @Named("auth0.clientSecret") String clientSecret) {
+
+        // Built on first use, unless an application wide AuthAPI is bound
+        this.domain = domain;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+
+        String[] loginParameters = properties.getStringArray("auth0.login.parameters");
+        configure(reverseRouter, tokenRenewer.isEnabled() ? tokenHandler.getScope() + " offline_access" : tokenHandler.getScope(),
+                properties.getBooleanWithDefault("auth0.forceHttps", false), loginParameters != null ? loginParameters : NO_PARAMETERS);
+
+    }
+
+    /**
+     * Sets the URL building options.
+     *
+     * @param reverseRouter
+     *            Ninja's reverse router
+     * @param scope
+     *            scope requested to Auth0
+     * @param forceHttps
+     *            true to always build https URLs
+     * @param parameters
+     *            names of the login request parameters forwarded to Auth0
+     */
+    public void configure(ReverseRouter reverseRouter, String scope, boolean forceHttps, String... parameters) {
+        this.reverseRouter = reverseRouter;
+        this.scope = scope;
+        this.forceHttps = forceHttps;
+        this.parameters = parameters;
+        this.origins.clear();
+    }
+
+    /**
+     * Sets the Auth0 authentication API client (injected by Guice if bound, but can be set manually), so that the one
+     * of the application is reused rather than building another one.
+     *
+     * @param auth
+     *            Auth0 authentication API client
+     */
+    @Inject(optional = true)
+    public void setAuth(AuthAPI auth) {
+        this.auth = auth;
+        this.origins.clear();
+    }
+
+    /**
+     * Gets the URLs of the scheme and host of the current request, building them on first call.
+     *
+     * @param context
+     *            current Ninja's context
+     * @return URLs of the current origin
+     */
+    public Origin of(Context context) {
+
+        String scheme = forceHttps ? "https" : context.getScheme();
+        String host = context.getHostname();
+        String key = scheme + "://" + host;
+
+        Origin origin = origins.get(key);
+        if (origin == null) {
+            origin = new Origin(scheme, host);
+            origins.put(key, origin, Long.MAX_VALUE);
+        }
+        return origin;
+
+    }
+
+    /**
+     * Gets the Auth0 login page URL of the current request : the cached one of its origin, plus the forwarded login
+     * request parameters, if any.
+     *
+     * @param context
+     *            current Ninja's context
+     * @return Auth0 login page URL, redirecting to the callback route
+     */
+    public String getAuthorizeUrl(Context context) {
+
+        String authorizeUrl = of(context).getAuthorizeUrl();
+
+        StringBuilder url = null;
+        for (String name : parameters) {
+            String value = context.getParameter(name);
+            if (value != null) {
+                if (url == null) {
+                    url = new StringBuilder(authorizeUrl);
+                }
+                url.append('&').append(encode(name)).append('=').append(encode(value));
+            }
+        }
+        return url != null ? url.toString() : authorizeUrl;
+
+    }
+
+    /**
+     * @return scope requested to Auth0 : the token handler's one, plus <code>offline_access</code> if tokens are
+     *         renewed (see {@link TokenRenewer})
+     */
+    public String getScope() {
+        return scope;
+    }
+
+    /**
+     * @return number of origins whose URLs are currently kept
+     */
+    public int size() {
+        return origins.size();
+    }
+
+    private AuthAPI getAuth() {
+
+        // Racing first calls may build two clients, only one being kept
+        AuthAPI current = auth;
+        if (current == null) {
+            current = new AuthAPI(domain, clientId, clientSecret);
+            auth = current;
+        }
+        return current;
+
+    }
+
+    private static String encode(String value) {
+
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+
+    }
+
+    /**
+     * URLs of one scheme and host.
+     */
+    public final class Origin {
+
+        private final String callbackUrl;
+
+        private final String loggedOutUrl;
+
+        private final String authorizeUrl;
+
+        private final String logoutUrl;
+
+        private Origin(String scheme, String host) {
+            AuthAPI auth = getAuth();
+            this.callbackUrl = reverseRouter.with(Auth0Controller::callback).absolute(scheme, host).build();
+            this.loggedOutUrl = reverseRouter.with(Auth0Controller::loggedOut).absolute(scheme, host).build();
+            this.authorizeUrl = auth.authorizeUrl(callbackUrl).withResponseType("code").withScope(scope).build();
+            this.logoutUrl = auth.logoutUrl(loggedOutUrl, true).useFederated(true).build();
+        }
+
+        /**
+         * @return absolute URL of the {@link Auth0Controller#callback} route
+         */
+        public String getCallbackUrl() {
+            return callbackUrl;
+        }
+
+        /**
+         * @return absolute URL of the {@link Auth0Controller#loggedOut} route
+         */
+        public String getLoggedOutUrl() {
+            return loggedOutUrl;
+        }
+
+        /**
+         * @return Auth0 login page URL, redirecting to the callback route, without any per-request parameter (see
+         *         {@link RedirectUrls#getAuthorizeUrl(Context)})
+         */
+        public String getAuthorizeUrl() {
+            return authorizeUrl;
+        }
+
+        /**
+         * @return Auth0 log out URL, redirecting to the logged out route
+         */
+        public String getLogoutUrl() {
+            return logoutUrl;
+        }
+
+    }
+
+}
@@ -7,13 +7,17 @@ import com.google.inject.Inject;
 
 import net.zileo.ninja.auth0.controllers.Auth0Controller;
 import net.zileo.ninja.auth0.handlers.Auth0TokenHandler;
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import net.zileo.ninja.auth0.store.SessionTokens;
+import net.zileo.ninja.auth0.subject.AuthenticationResult;
+import net.zileo.ninja.auth0.subject.FailureReason;
 import net.zileo.ninja.auth0.subject.Subject;
+import net.zileo.ninja.auth0.subject.SubjectHolder;
 import ninja.Context;
 import ninja.Filter;
 import ninja.FilterChain;
+import ninja.Ninja;
 import ninja.Result;
-import ninja.Results;
-import ninja.ReverseRouter;
 import ninja.exceptions.ForbiddenRequestException;
 import ninja.utils.NinjaProperties;
 
@@ -29,67 +33,120 @@ public class AuthenticateFilter implements Filter {
     public final static String SUBJECT_CTX_KEY = "contextSubject";
 
     @Inject
-    private ReverseRouter reverseRouter;
+    private LoginRoute loginRoute;
 
     @Inject
-    private NinjaProperties ninjaProperties;
+    private Auth0TokenHandler<? extends Subject> tokenHandler;
 
     @Inject
-    private Auth0TokenHandler<? extends Subject> tokenHandler;
+    private SessionTokens sessionTokens;
+
+    @Inject
+    private Auth0Metrics metrics;
+
+    @Inject
+    private NavigationClassifier navigationClassifier;
+
+    @Inject
+    private Ninja ninja;
+
+    private boolean lazySubject;
+
+    @Inject
+    public void init(NinjaProperties properties) {
+        this.lazySubject = properties.getBooleanWithDefault("auth0.lazySubject", false);
+    }
 
     /**
      * If there is no JSON ID Token in current session, then the current requested path is saved and the response
-     * redirects to the Auth0 controller login route.
+     * redirects to the Auth0 controller login route ; requests other than navigations (see
+     * {@link NavigationClassifier}) are answered with a 401 instead, leaving the session untouched. Else the Subject is built (once per request, see
+     * {@link SubjectHolder}), unless <code>auth0.lazySubject</code> is set : it will then only be built if and when
+     * requested by a controller or another filter. A Subject that can't be built is answered with Ninja's forbidden
+     * result, the reason being logged.
      * 
      * @see ninja.Filter#filter(ninja.FilterChain, ninja.Context)
      */
     @Override
     public Result filter(FilterChain filterChain, Context context) {
 
-        if (context.getSession().get(Auth0Controller.SESSION_ID_TOKEN) != null) {
+        long start = System.nanoTime();
+        Result rejection;
+        try {
+            rejection = authenticate(context);
+        } finally {
+            // Rejections timed too, so that failure floods show up
+            metrics.record(Auth0Metrics.FILTER_AUTHENTICATE, System.nanoTime() - start);
+        }
 
-            try {
+        return rejection != null ? rejection : filterChain.next(context);
 
-                logger.debug("ID token found, creating related subject");
-                
-                Subject subject = tokenHandler.buildSubject(context);
-                context.setAttribute(SUBJECT_CTX_KEY, subject);
-                return filterChain.next(context);
+    }
 
-            } catch (IllegalArgumentException e) {
+    /**
+     * @param context
+     *            current Ninja's context
+     * @return the answer to a rejected request, or null to go on with the filter chain
+     */
+    private Result authenticate(Context context) {
 
-                logger.warn(e.getMessage());
-                throw new ForbiddenRequestException(e.getMessage(), e);
+        if (sessionTokens.isPresent(context)) {
 
+            SubjectHolder holder = SubjectHolder.of(context, tokenHandler).require();
+            if (!lazySubject) {
+                logger.debug("ID token found, creating related subject");
+                AuthenticationResult<? extends Subject> result = holder.authenticate();
+                if (!result.isSuccess()) {
+                    logger.warn(result.getMessage());
+                    // Answered directly, rejected tokens being common enough not to pay for an exception
+                    return ninja.getForbiddenResult(context);
+                }
             }
+            return null;
 
         } else {
 
+            metrics.increment(FailureReason.NO_SESSION.getMetricName());
+
+            if (!navigationClassifier.isNavigation(context)) {
+                logger.debug("ID token not found, refusing {}", context.getRequestPath());
+                return NavigationClassifier.unauthorized();
+            }
+
             logger.debug("ID token not found, saving requested path ({}) and going to login page", context.getRequestPath());
-            
+
             // No Id Token or Subject = redirect to login page
             context.getSession().put(Auth0Controller.SESSION_TARGET_URL, context.getRequestPath());
-            if (ninjaProperties.isProd()) {
-                return Results.redirect(reverseRouter.with(Auth0Controller::login).build());
-            } else {
-                return Results.redirect(reverseRouter.with(Auth0Controller::simulateLogin).build());
-            }
+            return loginRoute.redirect();
 
         }
 
     }
 
     /**
-     * Retrieves the authenticated subject stored in current Ninja's context.
+     * Retrieves the authenticated subject of the current request, building it if not yet done.
      * 
      * @param context
      *            current Ninja's context
      * @param clazz
      *            Subject implementation class
-     * @return current Subject
+     * @throws ForbiddenRequestException
+     *             if the Subject can't be built on a route protected by this filter
+     * @return current Subject, or null
      */
     public static <T extends Subject> T get(Context context, Class<T> clazz) {
-        return context.getAttribute(SUBJECT_CTX_KEY, clazz);
+
+        SubjectHolder holder = SubjectHolder.get(context);
+        if (holder == null) {
+            return context.getAttribute(SUBJECT_CTX_KEY, clazz);
+        }
+
+        AuthenticationResult<? extends Subject> result = holder.authenticate();
+        if (!result.isSuccess() && holder.isRequired()) {
+            throw new ForbiddenRequestException(result.getMessage());
+        }
+        return clazz.cast(result.getSubject());
+
     }
 
 }
\ No newline at end of file
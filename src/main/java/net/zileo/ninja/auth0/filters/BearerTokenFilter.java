@@ -0,0 +1,119 @@
+package net.zileo.ninja.auth0.filters;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+
+import net.zileo.ninja.auth0.handlers.Auth0TokenHandler;
+import net.zileo.ninja.auth0.jwt.Auth0TokenVerifier;
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import net.zileo.ninja.auth0.subject.AuthenticationResult;
+import net.zileo.ninja.auth0.subject.FailureReason;
+import net.zileo.ninja.auth0.subject.Subject;
+import ninja.Context;
+import ninja.Filter;
+import ninja.FilterChain;
+import ninja.Result;
+import ninja.Results;
+import ninja.utils.NoHttpBody;
+
+/**
+ * Stateless filter for API routes, authenticating the token sent in the <code>Authorization: Bearer</code> header
+ * instead of the one stored in session. The session is never read nor written, so no session cookie is sent back ;
+ * failures are answered with a bodyless 401 rather than with a redirection to the login page.
+ * <p>
+ * The token goes through the same checks, caches and verification as a session token (see
+ * {@link Auth0TokenHandler#authenticateBearer(Context, String)}), except that its audience must be the API identifier
+ * set as <code>auth0.bearer.audience</code> (the client id by default), and the Subject is then available to
+ * controllers and other filters as with {@link AuthenticateFilter}. As anyone can send such a header, signatures must
+ * be verified : this filter can't be created unless <code>auth0.verification</code> is <code>HS256</code> or
+ * <code>RS256</code>.
+ *
+ * @author jlannoy
+ */
+public class BearerTokenFilter implements Filter {
+
+    private final static Logger logger = LoggerFactory.getLogger(BearerTokenFilter.class);
+
+    public final static String AUTHORIZATION_HEADER = "Authorization";
+
+    public final static String AUTHENTICATE_HEADER = "WWW-Authenticate";
+
+    private final static String BEARER = "Bearer ";
+
+    private final Auth0TokenHandler<? extends Subject> tokenHandler;
+
+    private final Auth0Metrics metrics;
+
+    /**
+     * Constructor.
+     *
+     * @param tokenHandler
+     *            client implementation of a token handler
+     * @param tokenVerifier
+     *            token verifier, which must verify signatures
+     * @param metrics
+     *            metrics recorder
+     * @throws IllegalArgumentException
+     *             if token signatures are not verified
+     */
+    @Inject
+    public BearerTokenFilter(Auth0TokenHandler<? extends Subject> tokenHandler, Auth0TokenVerifier tokenVerifier, Auth0Metrics metrics) throws IllegalArgumentException {
+        if (!tokenVerifier.isVerifying()) {
+            throw new IllegalArgumentException("BearerTokenFilter requires auth0.verification = HS256 or RS256, bearer tokens would else be accepted unverified");
+        }
+        this.tokenHandler = tokenHandler;
+        this.metrics = metrics;
+    }
+
+    /**
+     * If there is no bearer token, or if it is not valid, answers with a 401 status. Else the Subject is built (or
+     * taken from the Subject cache) and stored in the context.
+     *
+     * @see ninja.Filter#filter(ninja.FilterChain, ninja.Context)
+     */
+    @Override
+    public Result filter(FilterChain filterChain, Context context) {
+
+        long start = System.nanoTime();
+
+        String token = getBearerToken(context);
+        if (token == null) {
+            logger.debug("No bearer token found for {}", context.getRequestPath());
+            metrics.increment(FailureReason.NO_TOKEN.getMetricName());
+            return unauthorized("Bearer");
+        }
+
+        AuthenticationResult<? extends Subject> result = tokenHandler.authenticateBearer(context, token);
+        if (!result.isSuccess()) {
+            logger.debug(result.getMessage());
+            return unauthorized("Bearer error=\"invalid_token\"");
+        }
+
+        context.setAttribute(AuthenticateFilter.SUBJECT_CTX_KEY, result.getSubject());
+        metrics.record(Auth0Metrics.FILTER_BEARER, System.nanoTime() - start);
+        return filterChain.next(context);
+
+    }
+
+    /**
+     * @param context
+     *            current Ninja's context
+     * @return the token of the <code>Authorization: Bearer</code> header, or null if absent
+     */
+    public static String getBearerToken(Context context) {
+
+        String header = context.getHeader(AUTHORIZATION_HEADER);
+        if (header == null || header.length() <= BEARER.length() || !header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return null;
+        }
+        return header.substring(BEARER.length()).trim();
+
+    }
+
+    private static Result unauthorized(String challenge) {
+        return Results.status(Result.SC_401_UNAUTHORIZED).addHeader(AUTHENTICATE_HEADER, challenge).render(new NoHttpBody());
+    }
+
+}
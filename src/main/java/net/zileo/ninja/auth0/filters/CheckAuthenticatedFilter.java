@@ -3,13 +3,11 @@ package net.zileo.ninja.auth0.filters;
 import com.google.inject.Inject;
 
 import net.zileo.ninja.auth0.controllers.Auth0Controller;
+import net.zileo.ninja.auth0.store.SessionTokens;
 import ninja.Context;
 import ninja.Filter;
 import ninja.FilterChain;
 import ninja.Result;
-import ninja.Results;
-import ninja.ReverseRouter;
-import ninja.utils.NinjaProperties;
 
 /**
  * Filter allowing to check if the current user has been authenticated.
@@ -19,28 +17,32 @@ import ninja.utils.NinjaProperties;
 public class CheckAuthenticatedFilter implements Filter {
 
     @Inject
-    private NinjaProperties ninjaProperties;
+    private LoginRoute loginRoute;
 
     @Inject
-    private ReverseRouter reverseRouter;
+    private SessionTokens sessionTokens;
+
+    @Inject
+    private NavigationClassifier navigationClassifier;
 
     /**
      * If there is no JSON ID Token in current session, then the current requested path is saved and the response
-     * redirects to the Auth0 controller login route.
+     * redirects to the Auth0 controller login route ; requests other than navigations (see
+     * {@link NavigationClassifier}) are answered with a 401 instead, leaving the session untouched.
      * 
      * @see ninja.Filter#filter(ninja.FilterChain, ninja.Context)
      */
     @Override
     public Result filter(FilterChain filterChain, Context context) {
-        if (context.getSession() == null || context.getSession().get(Auth0Controller.SESSION_ID_TOKEN) == null) {
+        if (context.getSession() == null || !sessionTokens.isPresent(context)) {
 
-            context.getSession().put(Auth0Controller.SESSION_TARGET_URL, context.getRequestPath());
-            if (ninjaProperties.isProd()) {
-                return Results.redirect(reverseRouter.with(Auth0Controller::login).build());
-            } else {
-                return Results.redirect(reverseRouter.with(Auth0Controller::simulateLogin).build());
+            if (!navigationClassifier.isNavigation(context)) {
+                return NavigationClassifier.unauthorized();
             }
 
+            context.getSession().put(Auth0Controller.SESSION_TARGET_URL, context.getRequestPath());
+            return loginRoute.redirect();
+
         } else {
 
             return filterChain.next(context);
@@ -0,0 +1,68 @@
+package net.zileo.ninja.auth0.filters;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.controllers.Auth0Controller;
+import ninja.Result;
+import ninja.Results;
+import ninja.ReverseRouter;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Login route unauthenticated users are redirected to : {@link Auth0Controller#login} in production mode,
+ * {@link Auth0Controller#simulateLogin} otherwise. Its path is reverse routed once, on first use, then shared by all
+ * the filters.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class LoginRoute {
+
+    private final NinjaProperties ninjaProperties;
+
+    private final ReverseRouter reverseRouter;
+
+    private volatile String path;
+
+    /**
+     * Constructor.
+     *
+     * @param ninjaProperties
+     *            Ninja's properties
+     * @param reverseRouter
+     *            Ninja's reverse router
+     */
+    @Inject
+    public LoginRoute(NinjaProperties ninjaProperties, ReverseRouter reverseRouter) {
+        this.ninjaProperties = ninjaProperties;
+        this.reverseRouter = reverseRouter;
+    }
+
+    /**
+     * @return login route path
+     */
+    public String getPath() {
+
+        // Routes are not available yet when filters are created, hence the lazy init ; racing inits build the same path
+        String loginPath = path;
+        if (loginPath == null) {
+            if (ninjaProperties.isProd()) {
+                loginPath = reverseRouter.with(Auth0Controller::login).build();
+            } else {
+                loginPath = reverseRouter.with(Auth0Controller::simulateLogin).build();
+            }
+            path = loginPath;
+        }
+        return loginPath;
+
+    }
+
+    /**
+     * @return a redirection to the login route
+     */
+    public Result redirect() {
+        return Results.redirect(getPath());
+    }
+
+}
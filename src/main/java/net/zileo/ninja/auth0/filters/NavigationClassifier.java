@@ -0,0 +1,81 @@
+package net.zileo.ninja.auth0.filters;
+
+import java.util.regex.Pattern;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import ninja.Context;
+import ninja.Result;
+import ninja.Results;
+import ninja.utils.NinjaProperties;
+import ninja.utils.NoHttpBody;
+
+/**
+ * Tells browser navigations, which can be redirected to the login page, from the other requests (XHR and fetch calls,
+ * JSON, images, fonts...) which would only follow the redirection to an HTML page they can't use. The request is
+ * classified by its <code>Sec-Fetch-Mode</code>, <code>X-Requested-With</code> and <code>Accept</code> headers, and
+ * by its path against <code>auth0.nonNavigationPaths</code>.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class NavigationClassifier {
+
+    /**
+     * Default pattern of the paths never redirected : JSON, scripts, styles, images and fonts.
+     */
+    public static final String DEFAULT_NON_NAVIGATION_PATHS = ".*\\.(json|xml|js|mjs|css|map|png|jpe?g|gif|svg|ico|webp|woff2?|ttf|otf|eot)$";
+
+    private boolean enabled = true;
+
+    private Pattern nonNavigationPaths = Pattern.compile(DEFAULT_NON_NAVIGATION_PATHS);
+
+    @Inject
+    public void init(NinjaProperties properties) {
+        this.enabled = !properties.getBooleanWithDefault("auth0.redirectAll", false);
+        this.nonNavigationPaths = Pattern.compile(properties.getWithDefault("auth0.nonNavigationPaths", DEFAULT_NON_NAVIGATION_PATHS));
+    }
+
+    /**
+     * @param context
+     *            current Ninja's context
+     * @return true if the request can be redirected to the login page
+     */
+    public boolean isNavigation(Context context) {
+
+        if (!enabled) {
+            return true;
+        }
+
+        String fetchMode = context.getHeader("Sec-Fetch-Mode");
+        if (fetchMode != null && !"navigate".equals(fetchMode)) {
+            return false;
+        }
+
+        if ("XMLHttpRequest".equals(context.getHeader("X-Requested-With"))) {
+            return false;
+        }
+
+        String path = context.getRequestPath();
+        if (path != null && nonNavigationPaths.matcher(path).matches()) {
+            return false;
+        }
+
+        // Browsers always ask for HTML when navigating ; without Accept header, keep on redirecting
+        String accept = context.getHeader("Accept");
+        return accept == null || accept.contains("text/html") || accept.contains("application/xhtml+xml");
+
+    }
+
+    /**
+     * Answer to non navigation requests without Id Token : a bodyless 401. A new one per request, as Ninja and other
+     * filters may add headers to it.
+     *
+     * @return a 401 result
+     */
+    public static Result unauthorized() {
+        return Results.status(Result.SC_401_UNAUTHORIZED).render(new NoHttpBody());
+    }
+
+}
@@ -0,0 +1,83 @@
+package net.zileo.ninja.auth0.handlers;
+
+import java.util.List;
+import java.util.Map;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.inject.Inject;
+
+import net.zileo.ninja.auth0.subject.Subject;
+import ninja.Context;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Same as {@link Auth0EmailHandler}, but loading users by batches : the lookups of concurrent requests are collected
+ * during a small window (or until a maximum batch size) and given together to
+ * {@link #loadSubjects(List)}, so that one query can load them all. Configured by the <code>auth0.batch.*</code>
+ * properties.
+ * <p>
+ * Bind your implementation as a singleton, so that all requests share the same batches.
+ * 
+ * @author jlannoy
+ */
+public abstract class Auth0BatchEmailHandler<P extends Subject> extends Auth0EmailHandler<P> {
+
+    private BatchLoader<UserKey, P> batchLoader = new BatchLoader<>(this::loadSubjects, 5, 100, 5);
+
+    /**
+     * Reads the <code>auth0.batch.*</code> properties.
+     * 
+     * @param properties
+     *            Ninja's properties
+     */
+    @Inject(optional = true)
+    public void configureBatch(NinjaProperties properties) {
+        configureBatch(properties.getIntegerWithDefault("auth0.batch.window", 5), properties.getIntegerWithDefault("auth0.batch.maxSize", 100),
+                properties.getIntegerWithDefault("auth0.batch.timeout", 5));
+    }
+
+    /**
+     * Configures batches.
+     * 
+     * @param windowMillis
+     *            maximum time a lookup waits for others before its batch is dispatched, in milliseconds
+     * @param maxSize
+     *            maximum number of lookups in a batch
+     * @param timeoutSeconds
+     *            maximum time a request waits for its Subject, in seconds
+     */
+    public void configureBatch(long windowMillis, int maxSize, long timeoutSeconds) {
+        this.batchLoader = new BatchLoader<>(this::loadSubjects, windowMillis, maxSize, timeoutSeconds);
+    }
+
+    /**
+     * @return the batch loader, exposing batch statistics
+     */
+    public BatchLoader<UserKey, P> getBatchLoader() {
+        return batchLoader;
+    }
+
+    /**
+     * Queues the user lookup in the current batch, and waits for its result.
+     * 
+     * @see net.zileo.ninja.auth0.handlers.Auth0EmailHandler#buildSubjectFromEmail(ninja.Context,
+     *      com.auth0.jwt.interfaces.DecodedJWT, java.lang.String, java.lang.String)
+     */
+    @Override
+    public final P buildSubjectFromEmail(Context context, DecodedJWT jwt, String userId, String email) {
+
+        return batchLoader.load(new UserKey(userId, email));
+
+    }
+
+    /**
+     * Implement this method to build the Subjects of several users at once. It is called from a background thread,
+     * outside of any request.
+     * 
+     * @param keys
+     *            distinct user ids and verified emails
+     * @return authenticated Users, by key ; missing users are rejected
+     */
+    public abstract Map<UserKey, P> loadSubjects(List<UserKey> keys);
+
+}
@@ -5,6 +5,7 @@ import java.util.Map;
 import com.auth0.jwt.JWTCreator.Builder;
 import com.auth0.jwt.interfaces.DecodedJWT;
 
+import net.zileo.ninja.auth0.jwt.ClaimsProjection;
 import net.zileo.ninja.auth0.subject.Subject;
 import ninja.Context;
 
@@ -20,6 +21,12 @@ public abstract class Auth0EmailHandler<P extends Subject> extends Auth0TokenHan
 
     public final static String CLAIM_EMAIL_VERIFIED = "email_verified";
 
+    /**
+     * Claims read by this handler ; return it from {@link #getClaimsProjection()} if your implementation doesn't need
+     * any other claim.
+     */
+    public final static ClaimsProjection EMAIL_CLAIMS = ClaimsProjection.of(CLAIM_SUBJECT, CLAIM_EMAIL, CLAIM_EMAIL_VERIFIED);
+
     /**
      * Defines the scope corresponding to the need claims for this handler.
      * 
@@ -52,7 +59,7 @@ public abstract class Auth0EmailHandler<P extends Subject> extends Auth0TokenHan
      */
     public boolean isVerifiedEmail(DecodedJWT jwt) {
 
-        return jwt.getClaim(CLAIM_EMAIL_VERIFIED) != null && jwt.getClaim(CLAIM_EMAIL_VERIFIED).asBoolean();
+        return jwt.getClaim(CLAIM_EMAIL_VERIFIED) != null && Boolean.TRUE.equals(jwt.getClaim(CLAIM_EMAIL_VERIFIED).asBoolean());
 
     }
 
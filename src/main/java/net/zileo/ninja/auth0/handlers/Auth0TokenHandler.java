@@ -5,9 +5,24 @@ import java.util.Map;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTCreator.Builder;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.inject.Inject;
 
+import net.zileo.ninja.auth0.cache.NegativeCache;
+import net.zileo.ninja.auth0.cache.SingleFlight;
+import net.zileo.ninja.auth0.cache.SubjectCache;
+import net.zileo.ninja.auth0.cache.TokenDigest;
 import net.zileo.ninja.auth0.controllers.Auth0Controller;
+import net.zileo.ninja.auth0.jwt.Auth0TokenVerifier;
+import net.zileo.ninja.auth0.jwt.ClaimsProjection;
+import net.zileo.ninja.auth0.jwt.TokenPipeline;
+import net.zileo.ninja.auth0.jwt.UnknownKeyException;
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import net.zileo.ninja.auth0.revocation.RevocationList;
+import net.zileo.ninja.auth0.store.SessionTokens;
+import net.zileo.ninja.auth0.store.StoredToken;
 import net.zileo.ninja.auth0.subject.Auth0;
+import net.zileo.ninja.auth0.subject.AuthenticationResult;
+import net.zileo.ninja.auth0.subject.FailureReason;
 import net.zileo.ninja.auth0.subject.Subject;
 import ninja.Context;
 
@@ -24,6 +39,111 @@ public abstract class Auth0TokenHandler<P extends Subject> {
 
     public final static String CLAIM_SIMULATED = "__simulated";
 
+    @Inject(optional = true)
+    private SubjectCache subjectCache;
+
+    @Inject(optional = true)
+    private Auth0TokenVerifier tokenVerifier;
+
+    @Inject(optional = true)
+    private SessionTokens sessionTokens;
+
+    @Inject(optional = true)
+    private SingleFlight singleFlight;
+
+    @Inject(optional = true)
+    private RevocationList revocationList;
+
+    @Inject(optional = true)
+    private TokenPipeline tokenPipeline;
+
+    @Inject(optional = true)
+    private NegativeCache negativeCache;
+
+    @Inject(optional = true)
+    private Auth0Metrics metrics = Auth0Metrics.NOOP;
+
+    /**
+     * Sets the Id Token verifier (injected by Guice, but can be set manually).
+     * 
+     * @param tokenVerifier
+     *            token verifier, or null to only decode tokens
+     */
+    public void setTokenVerifier(Auth0TokenVerifier tokenVerifier) {
+        this.tokenVerifier = tokenVerifier;
+    }
+
+    /**
+     * Sets the session token accessor (injected by Guice, but can be set manually).
+     * 
+     * @param sessionTokens
+     *            session token accessor, or null to read the Id Token from the session cookie
+     */
+    public void setSessionTokens(SessionTokens sessionTokens) {
+        this.sessionTokens = sessionTokens;
+    }
+
+    /**
+     * Sets the metrics recorder (injected by Guice, but can be set manually).
+     * 
+     * @param metrics
+     *            metrics recorder
+     */
+    public void setMetrics(Auth0Metrics metrics) {
+        this.metrics = metrics != null ? metrics : Auth0Metrics.NOOP;
+    }
+
+    /**
+     * Sets the coalescing of concurrent builds (injected by Guice, but can be set manually).
+     * 
+     * @param singleFlight
+     *            builds coalescing, or null to build Subjects independently
+     */
+    public void setSingleFlight(SingleFlight singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    /**
+     * Sets the checks run before any cache lookup or signature verification (injected by Guice, but can be set
+     * manually).
+     * 
+     * @param tokenPipeline
+     *            token checks, or null to skip them
+     */
+    public void setTokenPipeline(TokenPipeline tokenPipeline) {
+        this.tokenPipeline = tokenPipeline;
+    }
+
+    /**
+     * Sets the cache of recently rejected tokens (injected by Guice, but can be set manually).
+     * 
+     * @param negativeCache
+     *            rejected tokens cache, or null to check every token fully
+     */
+    public void setNegativeCache(NegativeCache negativeCache) {
+        this.negativeCache = negativeCache;
+    }
+
+    /**
+     * Sets the revoked tokens denylist (injected by Guice, but can be set manually).
+     * 
+     * @param revocationList
+     *            revoked tokens, or null to accept all valid tokens
+     */
+    public void setRevocationList(RevocationList revocationList) {
+        this.revocationList = revocationList;
+    }
+
+    /**
+     * Sets the cache of built Subjects (injected by Guice, but can be set manually).
+     * 
+     * @param subjectCache
+     *            Subject cache, or null to disable caching
+     */
+    public void setSubjectCache(SubjectCache subjectCache) {
+        this.subjectCache = subjectCache;
+    }
+
     /**
      * Defines the scope corresponding to the need claims for this handler.
      * 
@@ -33,6 +153,17 @@ public abstract class Auth0TokenHandler<P extends Subject> {
         return "openid";
     }
 
+    /**
+     * Declares the claims read by this handler. When tokens are not verified, only these claims are decoded, which
+     * saves CPU and memory for tokens carrying many claims. Claims outside of the projection will then be reported as
+     * missing by the {@link DecodedJWT} given to {@link #buildSubjectFromJWT(Context, DecodedJWT, String)}.
+     * 
+     * @return claims projection, or null (default) to decode all claims
+     */
+    public ClaimsProjection getClaimsProjection() {
+        return null;
+    }
+
     /**
      * Extracts the user id from the Json Web Token.
      * 
@@ -48,7 +179,9 @@ public abstract class Auth0TokenHandler<P extends Subject> {
 
     /**
      * Checks the ID Token, decodes it, then call
-     * {@link Auth0TokenHandler#buildSubjectFromJWT(Context, DecodedJWT, String)}.
+     * {@link Auth0TokenHandler#buildSubjectFromJWT(Context, DecodedJWT, String)}. When tokens are stored server side
+     * (see {@link SessionTokens}) and the {@link SubjectCache} is disabled, the Subject built for the first request is
+     * kept along with the token and returned as is afterwards, unless the token has been revoked since.
      * 
      * @param context
      *            Ninja's current context
@@ -58,13 +191,54 @@ public abstract class Auth0TokenHandler<P extends Subject> {
      */
     public final P buildSubject(Context context) throws IllegalArgumentException {
 
-        return this.buildSubject(context, context.getSession().get(Auth0Controller.SESSION_ID_TOKEN));
+        return authenticate(context).orThrow();
 
     }
 
     /**
-     * Checks the ID Token, decodes it, then call
-     * {@link Auth0TokenHandler#buildSubjectFromJWT(Context, DecodedJWT, String)}.
+     * Same as {@link #buildSubject(Context)}, but reporting failures as a result rather than as an exception.
+     * 
+     * @param context
+     *            Ninja's current context
+     * @return authenticated User, or failure reason
+     */
+    @SuppressWarnings("unchecked")
+    public final AuthenticationResult<P> authenticate(Context context) {
+
+        if (sessionTokens == null || !sessionTokens.isServerSide()) {
+            return this.authenticate(context, context.getSession().get(Auth0Controller.SESSION_ID_TOKEN));
+        }
+
+        StoredToken stored = sessionTokens.get(context);
+        if (stored == null) {
+            return failure(FailureReason.NO_TOKEN);
+        }
+
+        // The Subject cache takes over when enabled, as its entries can be invalidated
+        boolean cached = subjectCache != null && subjectCache.isEnabled();
+        if (!cached && stored.getSubject() != null) {
+            // Revocations still apply to the Subject kept along with the token
+            if (revocationList != null && revocationList.isEnabled() && revocationList.isRevoked(stored.getDigest())) {
+                return failure(FailureReason.REVOKED);
+            }
+            return AuthenticationResult.success((P) stored.getSubject());
+        }
+
+        AuthenticationResult<P> result = this.authenticate(context, stored.getIdToken());
+        if (!cached && result.isSuccess()) {
+            stored.setSubject(result.getSubject());
+        }
+        return result;
+
+    }
+
+    /**
+     * Checks the ID Token, decodes and verifies it (see {@link Auth0TokenVerifier}), then call
+     * {@link Auth0TokenHandler#buildSubjectFromJWT(Context, DecodedJWT, String)}. The cheapest checks come first : the
+     * {@link TokenPipeline} (shape, algorithm, time claims), then the {@link NegativeCache} of recently rejected
+     * tokens, the {@link RevocationList} and the {@link SubjectCache}, and only then the signature verification and the
+     * Subject build. A Subject found in cache is returned without decoding the token again. If the {@link SingleFlight}
+     * is enabled, concurrent calls for the same token wait for a single build.
      * 
      * @param context
      *            Ninja's current context
@@ -76,27 +250,191 @@ public abstract class Auth0TokenHandler<P extends Subject> {
      */
     public final P buildSubject(Context context, String idToken) throws IllegalArgumentException {
 
-        if (idToken == null) {
-            throw new IllegalArgumentException("No Id Token provided");
+        return authenticate(context, idToken).orThrow();
+
+    }
+
+    /**
+     * Same as {@link #buildSubject(Context, String)}, but reporting failures as a result rather than as an exception :
+     * tokens rejected before reaching the token verifier or this handler cost neither an exception nor an allocation.
+     * 
+     * @param context
+     *            Ninja's current context
+     * @param idToken
+     *            Auth0 Id Token
+     * @return authenticated User, or failure reason
+     */
+    public final AuthenticationResult<P> authenticate(Context context, String idToken) {
+
+        return authenticate(context, idToken, false);
+
+    }
+
+    /**
+     * Same as {@link #authenticate(Context, String)}, for an access token sent as a bearer token (see
+     * {@link net.zileo.ninja.auth0.filters.BearerTokenFilter}) : its audience must be the one of
+     * {@link Auth0TokenVerifier#verifyBearer(String)}. Bearer tokens have their own cache entries,
+     * so that a token accepted in session is not accepted as a bearer token with another audience, and the other way
+     * round.
+     * 
+     * @param context
+     *            Ninja's current context
+     * @param token
+     *            bearer token
+     * @return authenticated User, or failure reason
+     */
+    public final AuthenticationResult<P> authenticateBearer(Context context, String token) {
+
+        return authenticate(context, token, true);
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private AuthenticationResult<P> authenticate(Context context, String idToken, boolean bearer) {
+
+        long start = System.nanoTime();
+        try {
+
+            if (idToken == null) {
+                return failure(FailureReason.NO_TOKEN);
+            }
+
+            if (tokenPipeline != null && tokenPipeline.isEnabled()) {
+                String rejectedBy = tokenPipeline.check(idToken);
+                if (rejectedBy != null) {
+                    FailureReason reason = FailureReason.ofCheck(rejectedBy);
+                    if (reason == FailureReason.CHECK) {
+                        metrics.increment(tokenPipeline.getFailureMetricName(rejectedBy));
+                        return AuthenticationResult.failure(reason);
+                    }
+                    return failure(reason);
+                }
+            }
+
+            long cacheStart = System.nanoTime();
+            String cacheKey = null;
+            Subject cached = null;
+            try {
+
+                if (negativeCache != null && negativeCache.isEnabled()) {
+                    cacheKey = digest(idToken, bearer);
+                    AuthenticationResult<P> rejected = negativeCache.get(cacheKey);
+                    if (rejected != null) {
+                        metrics.increment(Auth0Metrics.AUTHENTICATION_NEGATIVE_HIT);
+                        metrics.increment(rejected.getFailure().getMetricName());
+                        return rejected;
+                    }
+                }
+
+                if (revocationList != null && revocationList.isEnabled()) {
+                    if (cacheKey == null) {
+                        cacheKey = digest(idToken, bearer);
+                    }
+                    if (revocationList.isRevoked(cacheKey)) {
+                        return failure(FailureReason.REVOKED);
+                    }
+                }
+
+                if (subjectCache != null && subjectCache.isEnabled()) {
+                    if (cacheKey == null) {
+                        cacheKey = digest(idToken, bearer);
+                    }
+                    cached = subjectCache.get(cacheKey);
+                }
+
+            } finally {
+                metrics.record(Auth0Metrics.SUBJECT_CACHE, System.nanoTime() - cacheStart);
+            }
+
+            if (cached != null) {
+                metrics.increment(Auth0Metrics.AUTHENTICATION_SUCCESS);
+                return AuthenticationResult.success((P) cached);
+            }
+
+            AuthenticationResult<P> result;
+            if (singleFlight != null && singleFlight.isEnabled()) {
+                String key = cacheKey != null ? cacheKey : digest(idToken, bearer);
+                result = singleFlight.execute(key, () -> buildAndCache(context, idToken, key, bearer));
+            } else {
+                result = buildAndCache(context, idToken, cacheKey, bearer);
+            }
+
+            if (result.isSuccess()) {
+                metrics.increment(Auth0Metrics.AUTHENTICATION_SUCCESS);
+            } else {
+                metrics.increment(result.getFailure().getMetricName());
+                if (negativeCache != null && negativeCache.isEnabled()) {
+                    negativeCache.put(cacheKey, result);
+                }
+            }
+            return result;
+
+        } finally {
+
+            metrics.record(Auth0Metrics.SUBJECT_BUILD, System.nanoTime() - start);
+
         }
 
-        DecodedJWT jwt = JWT.decode(idToken);
+    }
+
+    private AuthenticationResult<P> buildAndCache(Context context, String idToken, String cacheKey, boolean bearer) {
+
+        long decodeStart = System.nanoTime();
+        ClaimsProjection projection = getClaimsProjection();
+        DecodedJWT jwt;
+        try {
+            if (bearer) {
+                if (tokenVerifier == null) {
+                    return AuthenticationResult.failure(FailureReason.INVALID_TOKEN);
+                }
+                jwt = tokenVerifier.verifyBearer(idToken);
+            } else {
+                jwt = tokenVerifier != null ? tokenVerifier.verify(idToken, projection) : Auth0TokenVerifier.decode(idToken, projection);
+            }
+        } catch (UnknownKeyException e) {
+            return AuthenticationResult.failure(FailureReason.UNKNOWN_KEY, e);
+        } catch (IllegalArgumentException e) {
+            return AuthenticationResult.failure(FailureReason.INVALID_TOKEN, e);
+        } finally {
+            metrics.record(Auth0Metrics.SUBJECT_DECODE, System.nanoTime() - decodeStart);
+        }
         if (jwt == null) {
-            throw new IllegalArgumentException("Unable to decode provided Id Token");
+            return AuthenticationResult.failure(FailureReason.INVALID_TOKEN);
         }
 
         String userId = getUserId(jwt);
         if (userId == null) {
-            throw new IllegalArgumentException("No User Id in provided Id Token");
+            return AuthenticationResult.failure(FailureReason.NO_USER_ID);
         }
 
-        P subject = buildSubjectFromJWT(context, jwt, userId);
+        long handlerStart = System.nanoTime();
+        P subject;
+        try {
+            subject = buildSubjectFromJWT(context, jwt, userId);
+        } catch (IllegalArgumentException e) {
+            return AuthenticationResult.failure(FailureReason.REJECTED, e);
+        } finally {
+            metrics.record(Auth0Metrics.SUBJECT_HANDLER, System.nanoTime() - handlerStart);
+        }
         if (subject == null) {
-            throw new IllegalArgumentException("Unable to create Subject from provided Id Token");
+            return AuthenticationResult.failure(FailureReason.REJECTED);
+        }
+
+        if (cacheKey != null && subjectCache != null && subjectCache.isEnabled()) {
+            subjectCache.put(cacheKey, userId, subject, jwt.getExpiresAt());
         }
 
-        return subject;
+        return AuthenticationResult.success(subject);
+
+    }
+
+    private static String digest(String token, boolean bearer) {
+        return bearer ? TokenDigest.ofBearer(token) : TokenDigest.of(token);
+    }
 
+    private AuthenticationResult<P> failure(FailureReason reason) {
+        metrics.increment(reason.getMetricName());
+        return AuthenticationResult.failure(reason);
     }
 
     /**
@@ -0,0 +1,227 @@
+package net.zileo.ninja.auth0.handlers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Collects the lookups made by concurrent requests and dispatches them together to a batch loading function. A batch
+ * is dispatched once it reaches the maximum batch size, or once its first lookup has waited for the configured window.
+ * Duplicate keys of a batch are only loaded once. Batches are dispatched one at a time, by a shared daemon thread only
+ * running while lookups are pending.
+ * 
+ * @author jlannoy
+ */
+public final class BatchLoader<K, V> {
+
+    private final static ExecutorService DISPATCHERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "auth0-batch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Function<List<K>, Map<K, V>> loader;
+
+    private final long windowNanos;
+
+    private final int maxSize;
+
+    private final long timeoutMillis;
+
+    private final LinkedBlockingQueue<Pending<K, V>> pending = new LinkedBlockingQueue<>();
+
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder lookups = new LongAdder();
+
+    private final LongAdder loadedKeys = new LongAdder();
+
+    /**
+     * Constructor.
+     * 
+     * @param loader
+     *            batch loading function, returning the values found by key
+     * @param windowMillis
+     *            maximum time a lookup waits for others before its batch is dispatched, in milliseconds
+     * @param maxSize
+     *            maximum number of lookups in a batch
+     * @param timeoutSeconds
+     *            maximum time a lookup waits for its value, in seconds
+     */
+    public BatchLoader(Function<List<K>, Map<K, V>> loader, long windowMillis, int maxSize, long timeoutSeconds) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.loader = loader;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxSize = maxSize;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+    }
+
+    /**
+     * Loads a value, along with the ones requested concurrently.
+     * 
+     * @param key
+     *            key to load
+     * @throws IllegalStateException
+     *             if the value couldn't be loaded in time
+     * @return loaded value, or null if not found
+     */
+    public V load(K key) throws IllegalStateException {
+
+        Pending<K, V> lookup = new Pending<>(key);
+        pending.add(lookup);
+        lookups.increment();
+        scheduleDispatch();
+
+        try {
+
+            return lookup.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+
+        } catch (TimeoutException e) {
+
+            throw new IllegalStateException("Timed out while loading " + key, e);
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + key, e);
+
+        } catch (ExecutionException e) {
+
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Unable to load " + key, e.getCause());
+
+        }
+
+    }
+
+    private void scheduleDispatch() {
+        if (dispatching.compareAndSet(false, true)) {
+            DISPATCHERS.execute(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+
+        try {
+
+            Pending<K, V> first;
+            while ((first = pending.poll()) != null) {
+                dispatch(collect(first));
+            }
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+
+        } finally {
+
+            dispatching.set(false);
+            // A lookup may have been added after the last poll
+            if (!pending.isEmpty()) {
+                scheduleDispatch();
+            }
+
+        }
+
+    }
+
+    private List<Pending<K, V>> collect(Pending<K, V> first) throws InterruptedException {
+
+        List<Pending<K, V>> batch = new ArrayList<>();
+        batch.add(first);
+
+        long deadline = first.createdAt + windowNanos;
+        while (batch.size() < maxSize) {
+            long remaining = deadline - System.nanoTime();
+            Pending<K, V> next = remaining > 0 ? pending.poll(remaining, TimeUnit.NANOSECONDS) : pending.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+
+        return batch;
+
+    }
+
+    private void dispatch(List<Pending<K, V>> batch) {
+
+        Set<K> keys = new LinkedHashSet<>();
+        for (Pending<K, V> lookup : batch) {
+            keys.add(lookup.key);
+        }
+
+        batches.increment();
+        loadedKeys.add(keys.size());
+
+        try {
+
+            Map<K, V> values = loader.apply(new ArrayList<>(keys));
+            for (Pending<K, V> lookup : batch) {
+                lookup.result.complete(values != null ? values.get(lookup.key) : null);
+            }
+
+        } catch (RuntimeException | Error e) {
+
+            for (Pending<K, V> lookup : batch) {
+                lookup.result.completeExceptionally(e);
+            }
+
+        }
+
+    }
+
+    /**
+     * @return number of dispatched batches
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return number of requested lookups
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return number of distinct keys given to the loading function
+     */
+    public long getLoadedKeys() {
+        return loadedKeys.sum();
+    }
+
+    private static final class Pending<K, V> {
+
+        private final K key;
+
+        private final long createdAt = System.nanoTime();
+
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private Pending(K key) {
+            this.key = key;
+        }
+
+    }
+
+}
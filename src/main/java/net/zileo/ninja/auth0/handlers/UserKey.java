@@ -0,0 +1,54 @@
+package net.zileo.ninja.auth0.handlers;
+
+import java.util.Objects;
+
+/**
+ * Identifies a user to load : its Auth0 user id and verified email address.
+ * 
+ * @author jlannoy
+ */
+public final class UserKey {
+
+    private final String userId;
+
+    private final String email;
+
+    public UserKey(String userId, String email) {
+        this.userId = userId;
+        this.email = email;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, email);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof UserKey)) {
+            return false;
+        }
+
+        UserKey other = (UserKey) obj;
+        return Objects.equals(userId, other.userId) && Objects.equals(email, other.email);
+
+    }
+
+    @Override
+    public String toString() {
+        return userId + " <" + email + ">";
+    }
+
+}
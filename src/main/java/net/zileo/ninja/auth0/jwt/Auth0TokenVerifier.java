@@ -0,0 +1,267 @@
+package net.zileo.ninja.auth0.jwt;
+
+import java.io.UnsupportedEncodingException;
+
+import javax.inject.Named;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.client.Auth0HttpClient;
+import net.zileo.ninja.auth0.handlers.Auth0TokenHandler;
+import ninja.lifecycle.Dispose;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Decodes and, depending on the configured <code>auth0.verification</code> mode, verifies Id Tokens :
+ * <ul>
+ * <li><code>none</code> (default) : tokens are only decoded</li>
+ * <li><code>HS256</code> : tokens must be signed with the client secret</li>
+ * <li><code>RS256</code> : tokens must be signed with one of the keys published in the domain's JWKS</li>
+ * </ul>
+ * When verifying, the issuer, audience and time claims are checked too. Outside of production mode, tokens created by
+ * the simulation routes are also accepted. Bearer tokens (see {@link #verifyBearer(String)}) are
+ * verified the same way, but against the <code>auth0.bearer.audience</code> API identifier.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class Auth0TokenVerifier {
+
+    private JWTVerifier verifier;
+
+    private JWTVerifier bearerVerifier;
+
+    private JWTVerifier simulationVerifier;
+
+    private JwksKeyProvider keyProvider;
+
+    private PooledHmacAlgorithm clientSecretAlgorithm;
+
+    @Inject
+    public void init(NinjaProperties properties, Auth0HttpClient httpClient, @Named("auth0.domain") String domain, @Named("auth0.clientId") String clientId,
+            @Named("auth0.clientSecret") String clientSecret) throws IllegalArgumentException, UnsupportedEncodingException {
+
+        String mode = properties.getWithDefault("auth0.verification", "none");
+        String issuer = "https://" + domain + "/";
+        long leeway = properties.getIntegerWithDefault("auth0.verification.leeway", 60);
+        String bearerAudience = properties.getWithDefault("auth0.bearer.audience", clientId);
+
+        // Built once : its keyed Macs are kept per thread
+        this.clientSecretAlgorithm = PooledHmacAlgorithm.HS256(clientSecret);
+
+        if ("HS256".equalsIgnoreCase(mode)) {
+
+            configure(clientSecretAlgorithm, issuer, clientId, bearerAudience, leeway);
+
+        } else if ("RS256".equalsIgnoreCase(mode)) {
+
+            keyProvider = new JwksKeyProvider(new UrlJwksSource(properties.getWithDefault("auth0.jwks.url", issuer + ".well-known/jwks.json"), httpClient.getClient()),
+                    properties.getIntegerWithDefault("auth0.jwks.refreshInterval", 600), properties.getIntegerWithDefault("auth0.jwks.minRefreshInterval", 30));
+            keyProvider.start();
+            configure(Algorithm.RSA256(keyProvider), issuer, clientId, bearerAudience, leeway);
+
+        } else if (!"none".equalsIgnoreCase(mode)) {
+
+            throw new IllegalArgumentException("Unknown auth0.verification mode : " + mode);
+
+        }
+
+        if (!properties.isProd()) {
+            allowSimulated(clientSecretAlgorithm);
+        }
+
+    }
+
+    /**
+     * Enables signature verification.
+     *
+     * @param algorithm
+     *            expected signing algorithm
+     * @param issuer
+     *            expected issuer
+     * @param audience
+     *            expected audience (client id)
+     * @param leewaySeconds
+     *            accepted clock skew for time claims
+     */
+    public void configure(Algorithm algorithm, String issuer, String audience, long leewaySeconds) {
+
+        configure(algorithm, issuer, audience, audience, leewaySeconds);
+
+    }
+
+    /**
+     * Enables signature verification, bearer tokens having their own audience.
+     *
+     * @param algorithm
+     *            expected signing algorithm
+     * @param issuer
+     *            expected issuer
+     * @param audience
+     *            expected audience of Id Tokens (client id)
+     * @param bearerAudience
+     *            expected audience of bearer tokens (API identifier)
+     * @param leewaySeconds
+     *            accepted clock skew for time claims
+     */
+    public void configure(Algorithm algorithm, String issuer, String audience, String bearerAudience, long leewaySeconds) {
+
+        this.verifier = JWT.require(algorithm).withIssuer(issuer).withAudience(audience).acceptLeeway(leewaySeconds).build();
+        this.bearerVerifier = JWT.require(algorithm).withIssuer(issuer).withAudience(bearerAudience).acceptLeeway(leewaySeconds).build();
+
+    }
+
+    /**
+     * Accepts simulated tokens (see {@link Auth0TokenHandler#buildSimulatedJWT}) signed by the given algorithm.
+     *
+     * @param algorithm
+     *            algorithm used by the simulation routes
+     */
+    public void allowSimulated(Algorithm algorithm) {
+
+        this.simulationVerifier = JWT.require(algorithm).withClaim(Auth0TokenHandler.CLAIM_SIMULATED, Boolean.TRUE).build();
+
+    }
+
+    /**
+     * @return HS256 algorithm keyed with the client secret, signing simulated tokens (null until initialized by Guice)
+     */
+    public PooledHmacAlgorithm getClientSecretAlgorithm() {
+        return clientSecretAlgorithm;
+    }
+
+    /**
+     * @return true if tokens signatures are verified
+     */
+    public boolean isVerifying() {
+        return verifier != null;
+    }
+
+    /**
+     * Decodes an Id Token and verifies it if enabled.
+     *
+     * @param idToken
+     *            Auth0 Id Token
+     * @throws IllegalArgumentException
+     *             if the token is malformed or not valid
+     * @return decoded token
+     */
+    public DecodedJWT verify(String idToken) throws IllegalArgumentException {
+        return verify(idToken, null);
+    }
+
+    /**
+     * Decodes an Id Token and verifies it if enabled. When not verifying, only the claims of the given projection are
+     * decoded (see {@link ProjectedJWT}).
+     *
+     * @param idToken
+     *            Auth0 Id Token
+     * @param projection
+     *            claims needed by the caller, or null for all claims
+     * @throws UnknownKeyException
+     *             if the token is signed by a key not (yet) known
+     * @throws IllegalArgumentException
+     *             if the token is malformed or not valid
+     * @return decoded token
+     */
+    public DecodedJWT verify(String idToken, ClaimsProjection projection) throws IllegalArgumentException {
+
+        if (verifier == null) {
+            return decode(idToken, projection);
+        }
+
+        return verify(verifier, idToken);
+
+    }
+
+    /**
+     * Verifies a bearer token : same as {@link #verify(String, ClaimsProjection)}, but expecting the bearer audience.
+     * Signatures must be verified : bearer tokens are never only decoded.
+     *
+     * @param token
+     *            bearer token
+     * @throws UnknownKeyException
+     *             if the token is signed by a key not (yet) known
+     * @throws IllegalArgumentException
+     *             if the token is malformed or not valid, or if verification is disabled
+     * @return decoded token
+     */
+    public DecodedJWT verifyBearer(String token) throws IllegalArgumentException {
+
+        if (bearerVerifier == null) {
+            throw new IllegalArgumentException("Bearer tokens can't be accepted without signature verification");
+        }
+
+        return verify(bearerVerifier, token);
+
+    }
+
+    private DecodedJWT verify(JWTVerifier verifier, String idToken) throws IllegalArgumentException {
+
+        try {
+
+            return verifier.verify(idToken);
+
+        } catch (JWTVerificationException e) {
+
+            if (simulationVerifier != null) {
+                try {
+                    return simulationVerifier.verify(idToken);
+                } catch (JWTVerificationException ignored) {
+                    // Not a simulated token either, report the first failure
+                }
+            }
+
+            // No public key found for the token's kid : it may be published later on
+            if (e instanceof SignatureVerificationException && e.getCause() instanceof IllegalStateException) {
+                throw new UnknownKeyException("Invalid Id Token : unknown signing key", e);
+            }
+            throw new IllegalArgumentException("Invalid Id Token : " + e.getMessage(), e);
+
+        }
+
+    }
+
+    /**
+     * Decodes an Id Token without verifying it.
+     *
+     * @param idToken
+     *            Auth0 Id Token
+     * @param projection
+     *            claims needed by the caller, or null for all claims
+     * @throws IllegalArgumentException
+     *             if the token is malformed
+     * @return decoded token
+     */
+    public static DecodedJWT decode(String idToken, ClaimsProjection projection) throws IllegalArgumentException {
+
+        try {
+
+            return projection != null ? ProjectedJWT.decode(idToken, projection) : JWT.decode(idToken);
+
+        } catch (JWTVerificationException e) {
+
+            throw new IllegalArgumentException("Invalid Id Token : " + e.getMessage(), e);
+
+        }
+
+    }
+
+    /**
+     * Stops the JWKS background refresh, if any.
+     */
+    @Dispose
+    public void stop() {
+        if (keyProvider != null) {
+            keyProvider.stop();
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package net.zileo.ninja.auth0.jwt;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Set of claims a token handler actually reads, by name or by name prefix. The <code>sub</code> and <code>exp</code>
+ * claims, needed by the module itself, are always included.
+ *
+ * @author jlannoy
+ */
+public final class ClaimsProjection {
+
+    private final Set<String> names;
+
+    private final String[] prefixes;
+
+    private ClaimsProjection(Set<String> names, String[] prefixes) {
+        this.names = names;
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * @param names
+     *            claim names
+     * @return a projection including the given claims
+     */
+    public static ClaimsProjection of(String... names) {
+
+        Set<String> set = new HashSet<>(Arrays.asList(names));
+        set.add("sub");
+        set.add("exp");
+        return new ClaimsProjection(Collections.unmodifiableSet(set), new String[0]);
+
+    }
+
+    /**
+     * @param extraNames
+     *            other claim names
+     * @return a new projection, also including the given claims
+     */
+    public ClaimsProjection with(String... extraNames) {
+
+        Set<String> set = new HashSet<>(names);
+        set.addAll(Arrays.asList(extraNames));
+        return new ClaimsProjection(Collections.unmodifiableSet(set), prefixes);
+
+    }
+
+    /**
+     * @param prefix
+     *            a claim name prefix, typically a claims namespace
+     * @return a new projection, also including all claims starting with the given prefix
+     */
+    public ClaimsProjection withPrefix(String prefix) {
+
+        String[] extended = Arrays.copyOf(prefixes, prefixes.length + 1);
+        extended[prefixes.length] = prefix;
+        return new ClaimsProjection(names, extended);
+
+    }
+
+    /**
+     * @param name
+     *            a claim name
+     * @return true if this claim is part of the projection
+     */
+    public boolean includes(String name) {
+
+        if (names.contains(name)) {
+            return true;
+        }
+
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+
+    }
+
+}
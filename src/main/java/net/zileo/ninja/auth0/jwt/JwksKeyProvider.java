@@ -0,0 +1,203 @@
+package net.zileo.ninja.auth0.jwt;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.auth0.jwt.interfaces.RSAKeyProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * RSA public keys provider backed by a locally cached JSON Web Key Set. Keys are indexed by their <code>kid</code> and
+ * refreshed in the background ; looking a key up never does a network call on the calling thread. When an unknown
+ * <code>kid</code> is requested, a background refresh is triggered, at most once per configured interval.
+ *
+ * @author jlannoy
+ */
+public class JwksKeyProvider implements RSAKeyProvider {
+
+    private final static Logger logger = LoggerFactory.getLogger(JwksKeyProvider.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JwksSource source;
+
+    private final long refreshIntervalMillis;
+
+    private final long minRefreshIntervalMillis;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong lastRefreshRequest = new AtomicLong();
+
+    private final LongAdder fetches = new LongAdder();
+
+    private volatile Map<String, RSAPublicKey> keys = Collections.emptyMap();
+
+    /**
+     * Constructor.
+     *
+     * @param source
+     *            JSON Web Key Set source
+     * @param refreshIntervalSeconds
+     *            delay between two background refreshes
+     * @param minRefreshIntervalSeconds
+     *            minimum delay between two refreshes triggered by an unknown key id
+     */
+    public JwksKeyProvider(JwksSource source, long refreshIntervalSeconds, long minRefreshIntervalSeconds) {
+        this.source = source;
+        this.refreshIntervalMillis = TimeUnit.SECONDS.toMillis(refreshIntervalSeconds);
+        this.minRefreshIntervalMillis = TimeUnit.SECONDS.toMillis(minRefreshIntervalSeconds);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth0-jwks");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the key set a first time, then schedules the periodic background refresh.
+     */
+    public void start() {
+
+        refresh();
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+
+    }
+
+    /**
+     * Stops the background refresh.
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Fetches and parses the key set. On failure, previously loaded keys are kept.
+     */
+    void refresh() {
+
+        lastRefreshRequest.set(System.currentTimeMillis());
+
+        try {
+
+            fetches.increment();
+            keys = parse(source.fetch());
+            logger.debug("JWKS loaded from {} ({} keys)", source, keys.size());
+
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+
+            logger.warn("Unable to load JWKS from {} : {}", source, e.getMessage());
+
+        }
+
+    }
+
+    /**
+     * Schedules a background refresh, unless one has been requested recently.
+     */
+    private void requestRefresh() {
+
+        long last = lastRefreshRequest.get();
+        long now = System.currentTimeMillis();
+
+        if (now - last >= minRefreshIntervalMillis && lastRefreshRequest.compareAndSet(last, now) && !scheduler.isShutdown()) {
+            scheduler.execute(this::refresh);
+        }
+
+    }
+
+    /**
+     * Parses a JSON Web Key Set, keeping only RSA keys.
+     *
+     * @param jwks
+     *            JWKS document
+     * @return public keys, indexed by key id
+     * @throws IOException
+     *             if the document is not valid JSON
+     * @throws GeneralSecurityException
+     *             if a key can't be built
+     */
+    static Map<String, RSAPublicKey> parse(String jwks) throws IOException, GeneralSecurityException {
+
+        Map<String, RSAPublicKey> parsed = new HashMap<>();
+        KeyFactory factory = KeyFactory.getInstance("RSA");
+
+        for (JsonNode key : MAPPER.readTree(jwks).path("keys")) {
+
+            if (!"RSA".equals(key.path("kty").asText()) || !key.hasNonNull("kid")) {
+                continue;
+            }
+
+            BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(key.path("n").asText()));
+            BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(key.path("e").asText()));
+            parsed.put(key.get("kid").asText(), (RSAPublicKey) factory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+
+        }
+
+        return Collections.unmodifiableMap(parsed);
+
+    }
+
+    /**
+     * @see com.auth0.jwt.interfaces.KeyProvider#getPublicKeyById(java.lang.String)
+     */
+    @Override
+    public RSAPublicKey getPublicKeyById(String keyId) {
+
+        RSAPublicKey key = keyId != null ? keys.get(keyId) : null;
+        if (key == null) {
+            requestRefresh();
+        }
+        return key;
+
+    }
+
+    /**
+     * @see com.auth0.jwt.interfaces.KeyProvider#getPrivateKey()
+     */
+    @Override
+    public RSAPrivateKey getPrivateKey() {
+        return null;
+    }
+
+    /**
+     * @see com.auth0.jwt.interfaces.KeyProvider#getPrivateKeyId()
+     */
+    @Override
+    public String getPrivateKeyId() {
+        return null;
+    }
+
+    /**
+     * @return number of currently known keys
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * @return number of JWKS fetches done so far
+     */
+    public long getFetches() {
+        return fetches.sum();
+    }
+
+}
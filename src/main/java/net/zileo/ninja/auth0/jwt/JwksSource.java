@@ -0,0 +1,22 @@
+package net.zileo.ninja.auth0.jwt;
+
+import java.io.IOException;
+
+/**
+ * Source of a JSON Web Key Set document, as published by Auth0 at <code>/.well-known/jwks.json</code>.
+ *
+ * @author jlannoy
+ */
+@FunctionalInterface
+public interface JwksSource {
+
+    /**
+     * Fetches the JSON Web Key Set. Only called from background threads.
+     *
+     * @return the JWKS document (JSON)
+     * @throws IOException
+     *             if the document can't be retrieved
+     */
+    String fetch() throws IOException;
+
+}
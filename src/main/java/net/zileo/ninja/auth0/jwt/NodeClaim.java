@@ -0,0 +1,127 @@
+package net.zileo.ninja.auth0.jwt;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.Claim;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+/**
+ * Claim backed by a Jackson node, with the same conversion rules as the java-jwt library.
+ *
+ * @author jlannoy
+ */
+final class NodeClaim implements Claim {
+
+    static final NodeClaim MISSING = new NodeClaim(MissingNode.getInstance());
+
+    private final JsonNode data;
+
+    NodeClaim(JsonNode data) {
+        this.data = data;
+    }
+
+    @Override
+    public boolean isNull() {
+        return data.isNull() || data.isMissingNode();
+    }
+
+    @Override
+    public Boolean asBoolean() {
+        return data.isBoolean() ? data.asBoolean() : null;
+    }
+
+    @Override
+    public Integer asInt() {
+        return data.isNumber() ? data.asInt() : null;
+    }
+
+    @Override
+    public Long asLong() {
+        return data.isNumber() ? data.asLong() : null;
+    }
+
+    @Override
+    public Double asDouble() {
+        return data.isNumber() ? data.asDouble() : null;
+    }
+
+    @Override
+    public String asString() {
+        return data.isTextual() ? data.asText() : null;
+    }
+
+    @Override
+    public Date asDate() {
+        return data.canConvertToLong() ? new Date(data.asLong() * 1000) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] asArray(Class<T> tClazz) throws JWTDecodeException {
+
+        if (!data.isArray()) {
+            return null;
+        }
+
+        T[] array = (T[]) Array.newInstance(tClazz, data.size());
+        for (int i = 0; i < data.size(); i++) {
+            array[i] = convert(data.get(i), tClazz);
+        }
+        return array;
+
+    }
+
+    @Override
+    public <T> List<T> asList(Class<T> tClazz) throws JWTDecodeException {
+
+        if (!data.isArray()) {
+            return null;
+        }
+
+        List<T> list = new ArrayList<>(data.size());
+        for (JsonNode item : data) {
+            list.add(convert(item, tClazz));
+        }
+        return list;
+
+    }
+
+    @Override
+    public Map<String, Object> asMap() throws JWTDecodeException {
+
+        if (!data.isObject()) {
+            return null;
+        }
+
+        try {
+            return ProjectedJWT.MAPPER.readerFor(new TypeReference<Map<String, Object>>() {}).readValue(data);
+        } catch (IOException e) {
+            throw new JWTDecodeException("Couldn't map the Claim value to Map", e);
+        }
+
+    }
+
+    @Override
+    public <T> T as(Class<T> tClazz) throws JWTDecodeException {
+        return convert(data, tClazz);
+    }
+
+    private static <T> T convert(JsonNode node, Class<T> tClazz) {
+
+        try {
+            return ProjectedJWT.MAPPER.treeToValue(node, tClazz);
+        } catch (IOException e) {
+            throw new JWTDecodeException("Couldn't map the Claim value to " + tClazz.getSimpleName(), e);
+        }
+
+    }
+
+}
@@ -0,0 +1,168 @@
+package net.zileo.ninja.auth0.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+/**
+ * HMAC signing algorithm reusing, on each thread, a {@link Mac} instance already initialized with the secret key.
+ * <p>
+ * The algorithms created by {@link Algorithm#HMAC256(String)} look up and initialize a new {@link Mac} for each
+ * signature, and build the signed content as an intermediate String. Here, the signed content is written into a
+ * per-thread buffer and the computed signature is compared to the token's one without decoding it, so that verifying
+ * a token does not allocate anything once the buffer has grown to the size of the tokens.
+ *
+ * @author jlannoy
+ */
+public class PooledHmacAlgorithm extends Algorithm {
+
+    private static final char[] BASE64_URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private final String macAlgorithm;
+
+    private final SecretKeySpec key;
+
+    private final ThreadLocal<State> states;
+
+    /**
+     * Constructor.
+     *
+     * @param name
+     *            JWT algorithm name (<code>HS256</code>...)
+     * @param macAlgorithm
+     *            JCA algorithm name (<code>HmacSHA256</code>...)
+     * @param secret
+     *            secret key
+     * @throws IllegalArgumentException
+     *             if the secret is null or the algorithm not available
+     */
+    public PooledHmacAlgorithm(String name, String macAlgorithm, byte[] secret) throws IllegalArgumentException {
+        super(name, macAlgorithm);
+        if (secret == null) {
+            throw new IllegalArgumentException("The Secret cannot be null");
+        }
+        this.macAlgorithm = macAlgorithm;
+        this.key = new SecretKeySpec(secret, macAlgorithm);
+        this.states = ThreadLocal.withInitial(State::new);
+
+        // Fails fast on a missing algorithm rather than on first use
+        states.get();
+    }
+
+    /**
+     * @param secret
+     *            secret key, encoded in UTF-8 like {@link Algorithm#HMAC256(String)} does
+     * @return a HS256 algorithm
+     */
+    public static PooledHmacAlgorithm HS256(String secret) {
+        return new PooledHmacAlgorithm("HS256", "HmacSHA256", secret != null ? secret.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    @Override
+    public void verify(DecodedJWT jwt) throws SignatureVerificationException {
+
+        State state = states.get();
+        try {
+            int length = state.write(jwt.getHeader(), jwt.getPayload());
+            state.mac.update(state.content, 0, length);
+            state.mac.doFinal(state.digest, 0);
+        } catch (ShortBufferException e) {
+            throw new SignatureVerificationException(this, e);
+        }
+
+        if (!matches(state.digest, jwt.getSignature())) {
+            throw new SignatureVerificationException(this);
+        }
+
+    }
+
+    @Override
+    public byte[] sign(byte[] contentBytes) throws SignatureGenerationException {
+        return states.get().mac.doFinal(contentBytes);
+    }
+
+    /**
+     * Compares, in constant time, a signature to its unpadded Base64 URL encoded representation.
+     */
+    static boolean matches(byte[] digest, String encoded) {
+
+        if (encoded == null || encoded.length() != (digest.length * 8 + 5) / 6) {
+            return false;
+        }
+
+        int diff = 0;
+        int position = 0;
+        for (int i = 0; i < digest.length; i += 3) {
+            int remaining = Math.min(3, digest.length - i);
+            int bits = (digest[i] & 0xFF) << 16;
+            if (remaining > 1) {
+                bits |= (digest[i + 1] & 0xFF) << 8;
+            }
+            if (remaining > 2) {
+                bits |= digest[i + 2] & 0xFF;
+            }
+            for (int j = 0; j <= remaining; j++) {
+                diff |= BASE64_URL[(bits >>> (18 - 6 * j)) & 0x3F] ^ encoded.charAt(position++);
+            }
+        }
+
+        return diff == 0;
+
+    }
+
+    /**
+     * Per-thread Mac and buffers.
+     */
+    private class State {
+
+        private final Mac mac;
+
+        private final byte[] digest;
+
+        private byte[] content = new byte[1024];
+
+        private State() {
+            try {
+                mac = Mac.getInstance(macAlgorithm);
+                mac.init(key);
+            } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+                throw new IllegalArgumentException(e);
+            }
+            digest = new byte[mac.getMacLength()];
+        }
+
+        /**
+         * Writes <code>header.payload</code>, both being Base64 (hence ASCII) strings, into the content buffer.
+         */
+        private int write(String header, String payload) {
+
+            int length = header.length() + 1 + payload.length();
+            if (content.length < length) {
+                content = new byte[Math.max(length, content.length * 2)];
+            }
+
+            int position = 0;
+            for (int i = 0; i < header.length(); i++) {
+                content[position++] = (byte) header.charAt(i);
+            }
+            content[position++] = '.';
+            for (int i = 0; i < payload.length(); i++) {
+                content[position++] = (byte) payload.charAt(i);
+            }
+
+            return length;
+
+        }
+
+    }
+
+}
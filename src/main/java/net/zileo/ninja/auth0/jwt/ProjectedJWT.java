@@ -0,0 +1,273 @@
+package net.zileo.ninja.auth0.jwt;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Decoded JSON Web Token only exposing the claims of a given {@link ClaimsProjection}. The payload is read once with a
+ * streaming parser that skips every other claim, and only the positions of the projected values are kept : each value
+ * is materialized the first time it is accessed. The header is only decoded if one of its values is requested.
+ * <p>
+ * This does not verify the token signature. Claims outside of the projection are reported as missing.
+ *
+ * @author jlannoy
+ */
+public final class ProjectedJWT implements DecodedJWT {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    private final String token;
+
+    private final String[] parts;
+
+    private final byte[] payload;
+
+    /** Projected claim name to [start, end[ offsets of its value in the payload */
+    private final Map<String, int[]> offsets = new HashMap<>();
+
+    private final Map<String, Claim> claims = new HashMap<>();
+
+    private JsonNode header;
+
+    private ProjectedJWT(String token, ClaimsProjection projection) {
+
+        this.token = token;
+        this.parts = split(token);
+
+        try {
+            this.payload = Base64.getUrlDecoder().decode(parts[1]);
+        } catch (IllegalArgumentException e) {
+            throw new JWTDecodeException("The payload is not a valid Base64 string", e);
+        }
+
+        index(projection);
+
+    }
+
+    /**
+     * Decodes a token, keeping only the projected claims.
+     *
+     * @param token
+     *            a JSON Web Token
+     * @param projection
+     *            claims to keep
+     * @throws JWTDecodeException
+     *             if the token is malformed
+     * @return decoded token
+     */
+    public static ProjectedJWT decode(String token, ClaimsProjection projection) throws JWTDecodeException {
+        return new ProjectedJWT(token, projection);
+    }
+
+    private static String[] split(String token) {
+
+        int first = token.indexOf('.');
+        int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+
+        if (first < 0 || second < 0 || token.indexOf('.', second + 1) >= 0) {
+            throw new JWTDecodeException("The token was expected to have 3 parts");
+        }
+
+        return new String[] {
+                token.substring(0, first), token.substring(first + 1, second), token.substring(second + 1)
+        };
+
+    }
+
+    private void index(ClaimsProjection projection) {
+
+        try (JsonParser parser = FACTORY.createParser(payload)) {
+
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JWTDecodeException("The payload is not a JSON object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+                String name = parser.getCurrentName();
+                parser.nextToken();
+
+                if (projection.includes(name)) {
+                    int start = (int) parser.getTokenLocation().getByteOffset();
+                    if (parser.currentToken().isStructStart()) {
+                        parser.skipChildren();
+                    } else {
+                        // Strings are decoded lazily by Jackson, make sure the parser went past the closing quote
+                        parser.finishToken();
+                    }
+                    offsets.put(name, new int[] {
+                            start, (int) parser.getCurrentLocation().getByteOffset()
+                    });
+                } else {
+                    parser.skipChildren();
+                }
+
+            }
+
+        } catch (IOException e) {
+            throw new JWTDecodeException("The payload is not a valid JSON object", e);
+        }
+
+    }
+
+    private JsonNode header() {
+
+        if (header == null) {
+            try {
+                header = MAPPER.readTree(Base64.getUrlDecoder().decode(parts[0]));
+            } catch (IOException | IllegalArgumentException e) {
+                throw new JWTDecodeException("The header is not a valid JSON object", e);
+            }
+        }
+        return header;
+
+    }
+
+    @Override
+    public Claim getClaim(String name) {
+
+        Claim claim = claims.get(name);
+
+        if (claim == null) {
+
+            int[] range = offsets.get(name);
+            if (range == null) {
+                return NodeClaim.MISSING;
+            }
+
+            try (JsonParser parser = FACTORY.createParser(payload, range[0], range[1] - range[0])) {
+                JsonNode node = MAPPER.readTree(parser);
+                claim = node != null ? new NodeClaim(node) : NodeClaim.MISSING;
+            } catch (IOException e) {
+                throw new JWTDecodeException("Unable to read claim " + name, e);
+            }
+            claims.put(name, claim);
+
+        }
+
+        return claim;
+
+    }
+
+    /**
+     * @return names of the projected claims present in the token, without materializing their values
+     */
+    public Set<String> getClaimNames() {
+        return Collections.unmodifiableSet(offsets.keySet());
+    }
+
+    @Override
+    public Map<String, Claim> getClaims() {
+
+        Map<String, Claim> all = new HashMap<>();
+        for (String name : offsets.keySet()) {
+            all.put(name, getClaim(name));
+        }
+        return Collections.unmodifiableMap(all);
+
+    }
+
+    @Override
+    public String getIssuer() {
+        return getClaim("iss").asString();
+    }
+
+    @Override
+    public String getSubject() {
+        return getClaim("sub").asString();
+    }
+
+    @Override
+    public List<String> getAudience() {
+
+        Claim audience = getClaim("aud");
+        if (audience.asString() != null) {
+            return Collections.singletonList(audience.asString());
+        }
+        return audience.asList(String.class);
+
+    }
+
+    @Override
+    public Date getExpiresAt() {
+        return getClaim("exp").asDate();
+    }
+
+    @Override
+    public Date getNotBefore() {
+        return getClaim("nbf").asDate();
+    }
+
+    @Override
+    public Date getIssuedAt() {
+        return getClaim("iat").asDate();
+    }
+
+    @Override
+    public String getId() {
+        return getClaim("jti").asString();
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return header().path("alg").textValue();
+    }
+
+    @Override
+    public String getType() {
+        return header().path("typ").textValue();
+    }
+
+    @Override
+    public String getContentType() {
+        return header().path("cty").textValue();
+    }
+
+    @Override
+    public String getKeyId() {
+        return header().path("kid").textValue();
+    }
+
+    @Override
+    public Claim getHeaderClaim(String name) {
+        return new NodeClaim(header().path(name));
+    }
+
+    @Override
+    public String getToken() {
+        return token;
+    }
+
+    @Override
+    public String getHeader() {
+        return parts[0];
+    }
+
+    @Override
+    public String getPayload() {
+        return parts[1];
+    }
+
+    @Override
+    public String getSignature() {
+        return parts[2];
+    }
+
+}
@@ -0,0 +1,34 @@
+package net.zileo.ninja.auth0.jwt;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * One cheap check of the {@link TokenPipeline}, run before the token signature is verified and the Subject built.
+ *
+ * @author jlannoy
+ */
+public interface TokenCheck {
+
+    /**
+     * @return name of the check, used as failure reason and in stage timings
+     */
+    String getName();
+
+    /**
+     * @return claims this check reads from the token payload, decoded for it (see {@link ProjectedJWT})
+     */
+    default Collection<String> getClaimNames() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Checks a token. A token that can't be decoded is rejected by the pipeline.
+     *
+     * @param token
+     *            token to check
+     * @return true if the token may be accepted
+     */
+    boolean accept(TokenPreview token);
+
+}
@@ -0,0 +1,259 @@
+package net.zileo.ninja.auth0.jwt;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import net.zileo.ninja.auth0.handlers.Auth0TokenHandler;
+
+/**
+ * Default {@link TokenCheck}s, from the cheapest to the most expensive.
+ *
+ * @author jlannoy
+ */
+public final class TokenChecks {
+
+    private TokenChecks() {}
+
+    /**
+     * Checks the length of the token, and that it is made of three Base64 URL encoded segments, without decoding
+     * anything.
+     *
+     * @param maxLength
+     *            maximum token length
+     * @return shape check
+     */
+    public static TokenCheck shape(int maxLength) {
+        return new ShapeCheck(maxLength);
+    }
+
+    /**
+     * Checks the <code>alg</code> header against an allowlist. Only the header is decoded.
+     *
+     * @param algorithms
+     *            accepted algorithms, like RS256
+     * @return algorithm check
+     */
+    public static TokenCheck algorithm(Collection<String> algorithms) {
+        return new AlgorithmCheck(algorithms);
+    }
+
+    /**
+     * Checks the <code>exp</code> and <code>nbf</code> claims, if present. Only these claims are decoded.
+     *
+     * @param leewaySeconds
+     *            accepted clock skew, in seconds
+     * @return time claims check
+     */
+    public static TokenCheck time(long leewaySeconds) {
+        return new TimeCheck(leewaySeconds);
+    }
+
+    /**
+     * Checks the <code>iss</code> claim, so that tokens of another tenant are rejected before any lookup. Only this
+     * claim is decoded.
+     *
+     * @param issuer
+     *            expected issuer, like <code>https://{domain}/</code>
+     * @param allowSimulated
+     *            true to accept simulated tokens, which have no issuer
+     * @return issuer check
+     */
+    public static TokenCheck issuer(String issuer, boolean allowSimulated) {
+        return new IssuerCheck(issuer, allowSimulated);
+    }
+
+    /**
+     * Checks the <code>aud</code> claim, so that tokens issued for another client or API are rejected before any
+     * lookup. Only this claim is decoded.
+     *
+     * @param audiences
+     *            accepted audiences, like the client id ; a token is accepted if one of its audiences is
+     * @param allowSimulated
+     *            true to accept simulated tokens, which have no audience
+     * @return audience check
+     */
+    public static TokenCheck audience(Collection<String> audiences, boolean allowSimulated) {
+        return new AudienceCheck(audiences, allowSimulated);
+    }
+
+    /**
+     * @return true if the token has been created by the simulation routes
+     */
+    private static boolean isSimulated(DecodedJWT decoded) {
+        Claim simulated = decoded.getClaim(Auth0TokenHandler.CLAIM_SIMULATED);
+        return simulated != null && Boolean.TRUE.equals(simulated.asBoolean());
+    }
+
+    private static final class ShapeCheck implements TokenCheck {
+
+        private final int maxLength;
+
+        private ShapeCheck(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public String getName() {
+            return "shape";
+        }
+
+        @Override
+        public boolean accept(TokenPreview preview) {
+
+            String token = preview.getToken();
+            if (token.length() > maxLength) {
+                return false;
+            }
+
+            int dots = 0;
+            int segmentLength = 0;
+            for (int i = 0; i < token.length(); i++) {
+                char c = token.charAt(i);
+                if (c == '.') {
+                    // Header and payload can't be empty, the signature can (unsigned tokens)
+                    if (segmentLength == 0 || ++dots > 2) {
+                        return false;
+                    }
+                    segmentLength = 0;
+                } else if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_') {
+                    segmentLength++;
+                } else {
+                    return false;
+                }
+            }
+            return dots == 2;
+
+        }
+
+    }
+
+    private static final class AlgorithmCheck implements TokenCheck {
+
+        private final Set<String> algorithms;
+
+        private AlgorithmCheck(Collection<String> algorithms) {
+            this.algorithms = new HashSet<>(algorithms);
+        }
+
+        @Override
+        public String getName() {
+            return "algorithm";
+        }
+
+        @Override
+        public boolean accept(TokenPreview preview) {
+            return algorithms.contains(preview.getDecoded().getAlgorithm());
+        }
+
+    }
+
+    private static final class TimeCheck implements TokenCheck {
+
+        private final long leewayMillis;
+
+        private TimeCheck(long leewaySeconds) {
+            this.leewayMillis = TimeUnit.SECONDS.toMillis(leewaySeconds);
+        }
+
+        @Override
+        public String getName() {
+            return "time";
+        }
+
+        @Override
+        public Collection<String> getClaimNames() {
+            return Arrays.asList("exp", "nbf");
+        }
+
+        @Override
+        public boolean accept(TokenPreview preview) {
+
+            Date expiresAt = preview.getDecoded().getExpiresAt();
+            if (expiresAt != null && expiresAt.getTime() + leewayMillis < preview.getNow()) {
+                return false;
+            }
+
+            Date notBefore = preview.getDecoded().getNotBefore();
+            return notBefore == null || notBefore.getTime() - leewayMillis <= preview.getNow();
+
+        }
+
+    }
+
+    private static final class IssuerCheck implements TokenCheck {
+
+        private final String issuer;
+
+        private final boolean allowSimulated;
+
+        private IssuerCheck(String issuer, boolean allowSimulated) {
+            this.issuer = issuer;
+            this.allowSimulated = allowSimulated;
+        }
+
+        @Override
+        public String getName() {
+            return "issuer";
+        }
+
+        @Override
+        public Collection<String> getClaimNames() {
+            return allowSimulated ? Arrays.asList("iss", Auth0TokenHandler.CLAIM_SIMULATED) : Arrays.asList("iss");
+        }
+
+        @Override
+        public boolean accept(TokenPreview preview) {
+            DecodedJWT decoded = preview.getDecoded();
+            return issuer.equals(decoded.getIssuer()) || (allowSimulated && isSimulated(decoded));
+        }
+
+    }
+
+    private static final class AudienceCheck implements TokenCheck {
+
+        private final Set<String> audiences;
+
+        private final boolean allowSimulated;
+
+        private AudienceCheck(Collection<String> audiences, boolean allowSimulated) {
+            this.audiences = new HashSet<>(audiences);
+            this.allowSimulated = allowSimulated;
+        }
+
+        @Override
+        public String getName() {
+            return "audience";
+        }
+
+        @Override
+        public Collection<String> getClaimNames() {
+            return allowSimulated ? Arrays.asList("aud", Auth0TokenHandler.CLAIM_SIMULATED) : Arrays.asList("aud");
+        }
+
+        @Override
+        public boolean accept(TokenPreview preview) {
+
+            DecodedJWT decoded = preview.getDecoded();
+            List<String> tokenAudiences = decoded.getAudience();
+            if (tokenAudiences != null) {
+                for (String audience : tokenAudiences) {
+                    if (audiences.contains(audience)) {
+                        return true;
+                    }
+                }
+            }
+            return allowSimulated && isSimulated(decoded);
+
+        }
+
+    }
+
+}
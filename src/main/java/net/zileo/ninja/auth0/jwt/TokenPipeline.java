@@ -0,0 +1,204 @@
+package net.zileo.ninja.auth0.jwt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Named;
+
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Ordered list of cheap {@link TokenCheck}s, run on each token before looking for its Subject in cache and verifying
+ * its signature, so that malformed or expired tokens are rejected without any signature computation nor database
+ * lookup. Opt-in with <code>auth0.verification.checks</code> : token shape, <code>alg</code> header allowlist, time
+ * claims, then issuer (the Auth0 domain) and audience (the client id, or the bearer audience). Without it, the pipeline only runs the checks added by the application, if any. Each check reports its own
+ * timing.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class TokenPipeline {
+
+    private volatile List<TokenCheck> checks = Collections.emptyList();
+
+    private volatile Stage[] stages = new Stage[0];
+
+    private volatile ClaimsProjection projection = ClaimsProjection.of();
+
+    private Auth0Metrics metrics = Auth0Metrics.NOOP;
+
+    @Inject
+    public void init(NinjaProperties properties, Auth0Metrics metrics, @Named("auth0.domain") String domain, @Named("auth0.clientId") String clientId) {
+
+        this.metrics = metrics;
+
+        // Off by default : it rejects expired tokens and unexpected algorithms even when tokens are only decoded
+        if (!properties.getBooleanWithDefault("auth0.verification.checks", false)) {
+            return;
+        }
+
+        String mode = properties.getWithDefault("auth0.verification", "none");
+        List<String> algorithms = new ArrayList<>();
+        String[] configured = properties.getStringArray("auth0.verification.algorithms");
+        if (configured != null && configured.length > 0) {
+            algorithms.addAll(Arrays.asList(configured));
+        } else if ("none".equalsIgnoreCase(mode)) {
+            algorithms.addAll(Arrays.asList("HS256", "RS256"));
+        } else {
+            algorithms.add(mode.toUpperCase());
+            // Simulated tokens
+            if (!properties.isProd()) {
+                algorithms.add("HS256");
+            }
+        }
+
+        // Bearer tokens carry the API identifier, the verifier then checks each audience on its own
+        List<String> audiences = new ArrayList<>();
+        audiences.add(clientId);
+        audiences.add(properties.getWithDefault("auth0.bearer.audience", clientId));
+
+        configure(Arrays.asList(TokenChecks.shape(properties.getIntegerWithDefault("auth0.verification.maxLength", 8192)), TokenChecks.algorithm(algorithms),
+                TokenChecks.time(properties.getIntegerWithDefault("auth0.verification.leeway", 60)), TokenChecks.issuer("https://" + domain + "/", !properties.isProd()),
+                TokenChecks.audience(audiences, !properties.isProd())));
+
+    }
+
+    /**
+     * Replaces all checks.
+     *
+     * @param checks
+     *            checks, in running order
+     */
+    public void configure(List<TokenCheck> checks) {
+
+        List<String> names = new ArrayList<>();
+        for (TokenCheck check : checks) {
+            names.addAll(check.getClaimNames());
+        }
+
+        // Metric names built once, not on each request
+        Stage[] stages = new Stage[checks.size()];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new Stage(checks.get(i));
+        }
+
+        this.projection = ClaimsProjection.of(names.toArray(new String[names.size()]));
+        this.checks = Collections.unmodifiableList(new ArrayList<>(checks));
+        this.stages = stages;
+
+    }
+
+    /**
+     * Adds a check, run after the existing ones.
+     *
+     * @param check
+     *            a check
+     */
+    public synchronized void addCheck(TokenCheck check) {
+
+        List<TokenCheck> extended = new ArrayList<>(checks);
+        extended.add(check);
+        configure(extended);
+
+    }
+
+    /**
+     * @return true if there is at least one check to run
+     */
+    public boolean isEnabled() {
+        return stages.length > 0;
+    }
+
+    /**
+     * @return checks, in running order
+     */
+    public List<TokenCheck> getChecks() {
+        return checks;
+    }
+
+    /**
+     * Sets the metrics recorder (injected by Guice, but can be set manually).
+     *
+     * @param metrics
+     *            metrics recorder
+     */
+    public void setMetrics(Auth0Metrics metrics) {
+        this.metrics = metrics != null ? metrics : Auth0Metrics.NOOP;
+    }
+
+    /**
+     * Runs all checks on a token, stopping at the first rejection.
+     *
+     * @param idToken
+     *            Auth0 Id Token
+     * @return name of the check that rejected the token, or null if accepted
+     */
+    public String check(String idToken) {
+
+        TokenPreview preview = new TokenPreview(idToken, projection, System.currentTimeMillis());
+
+        for (Stage stage : stages) {
+
+            long start = System.nanoTime();
+            boolean accepted;
+            try {
+                accepted = stage.check.accept(preview);
+            } catch (JWTDecodeException e) {
+                accepted = false;
+            } finally {
+                metrics.record(stage.metricName, System.nanoTime() - start);
+            }
+
+            if (!accepted) {
+                return stage.check.getName();
+            }
+
+        }
+
+        return null;
+
+    }
+
+    /**
+     * @param checkName
+     *            name of a check, as returned by {@link #check(String)}
+     * @return name of the counter of its rejections, built once per check
+     */
+    public String getFailureMetricName(String checkName) {
+
+        for (Stage stage : stages) {
+            if (stage.check.getName().equals(checkName)) {
+                return stage.failureMetricName;
+            }
+        }
+        return Auth0Metrics.AUTHENTICATION_FAILURE + checkName;
+
+    }
+
+    /**
+     * A check and the names of its metrics.
+     */
+    private static final class Stage {
+
+        private final TokenCheck check;
+
+        private final String metricName;
+
+        private final String failureMetricName;
+
+        private Stage(TokenCheck check) {
+            this.check = check;
+            this.metricName = Auth0Metrics.SUBJECT_CHECK + check.getName();
+            this.failureMetricName = Auth0Metrics.AUTHENTICATION_FAILURE + check.getName();
+        }
+
+    }
+
+}
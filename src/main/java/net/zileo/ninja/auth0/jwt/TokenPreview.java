@@ -0,0 +1,54 @@
+package net.zileo.ninja.auth0.jwt;
+
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+/**
+ * Unverified view of a token, given to {@link TokenCheck}s. Its header and claims are only decoded when first
+ * requested, and only the claims declared by the checks are decoded.
+ *
+ * @author jlannoy
+ */
+public final class TokenPreview {
+
+    private final String token;
+
+    private final ClaimsProjection projection;
+
+    private final long now;
+
+    private DecodedJWT decoded;
+
+    TokenPreview(String token, ClaimsProjection projection, long now) {
+        this.token = token;
+        this.projection = projection;
+        this.now = now;
+    }
+
+    /**
+     * @return raw token
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @return time of the check, in milliseconds since epoch
+     */
+    public long getNow() {
+        return now;
+    }
+
+    /**
+     * @throws JWTDecodeException
+     *             if the token is malformed
+     * @return decoded token, restricted to the claims declared by the checks
+     */
+    public DecodedJWT getDecoded() throws JWTDecodeException {
+        if (decoded == null) {
+            decoded = ProjectedJWT.decode(token, projection);
+        }
+        return decoded;
+    }
+
+}
@@ -0,0 +1,25 @@
+package net.zileo.ninja.auth0.jwt;
+
+/**
+ * Raised by {@link Auth0TokenVerifier} when a token is signed by a key missing from the current key set. Unlike other
+ * verification failures, the same token may be accepted later on, once the key set has been fetched again.
+ *
+ * @author jlannoy
+ */
+public class UnknownKeyException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     *
+     * @param message
+     *            detail message
+     * @param cause
+     *            original verification failure
+     */
+    public UnknownKeyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
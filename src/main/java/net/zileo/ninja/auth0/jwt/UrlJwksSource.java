@@ -0,0 +1,68 @@
+package net.zileo.ninja.auth0.jwt;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.zileo.ninja.auth0.client.Auth0HttpClient;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Fetches a JSON Web Key Set from an URL.
+ *
+ * @author jlannoy
+ */
+public class UrlJwksSource implements JwksSource {
+
+    private final OkHttpClient client;
+
+    private final String url;
+
+    /**
+     * Constructor.
+     *
+     * @param url
+     *            JWKS URL, usually <code>https://your.domain.auth0.com/.well-known/jwks.json</code>
+     */
+    public UrlJwksSource(String url) {
+        this(url, new OkHttpClient.Builder().connectTimeout(5, TimeUnit.SECONDS).readTimeout(5, TimeUnit.SECONDS).build());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param url
+     *            JWKS URL, usually <code>https://your.domain.auth0.com/.well-known/jwks.json</code>
+     * @param client
+     *            HTTP client to use (see {@link Auth0HttpClient})
+     */
+    public UrlJwksSource(String url, OkHttpClient client) {
+        this.url = url;
+        this.client = client;
+    }
+
+    /**
+     * @see net.zileo.ninja.auth0.jwt.JwksSource#fetch()
+     */
+    @Override
+    public String fetch() throws IOException {
+
+        try (Response response = client.newCall(new Request.Builder().url(url).get().build()).execute()) {
+
+            if (!response.isSuccessful()) {
+                throw new IOException("Unable to fetch JWKS from " + url + " (HTTP " + response.code() + ")");
+            }
+
+            return response.body().string();
+
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+
+}
@@ -0,0 +1,117 @@
+package net.zileo.ninja.auth0.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.google.inject.ImplementedBy;
+
+/**
+ * Metrics recorded by this module. The default implementation keeps them in memory (see {@link DefaultAuth0Metrics}) ;
+ * bind your own implementation in your Guice module to forward them to your metrics system.
+ *
+ * @author jlannoy
+ */
+@ImplementedBy(DefaultAuth0Metrics.class)
+public interface Auth0Metrics {
+
+    /** Time spent by AuthenticateFilter to get the Subject */
+    String FILTER_AUTHENTICATE = "filter.authenticate";
+
+    /** Time spent by BearerTokenFilter to get the Subject */
+    String FILTER_BEARER = "filter.bearer";
+
+    /** Total time spent by Auth0TokenHandler.buildSubject */
+    String SUBJECT_BUILD = "subject.build";
+
+    /** Time spent by one check of the TokenPipeline, suffixed by the check name */
+    String SUBJECT_CHECK = "subject.check.";
+
+    /** Time spent looking for the Id Token in the revocation list and the Subject cache */
+    String SUBJECT_CACHE = "subject.cache";
+
+    /** Time spent decoding and verifying the Id Token */
+    String SUBJECT_DECODE = "subject.decode";
+
+    /** Time spent in buildSubjectFromJWT */
+    String SUBJECT_HANDLER = "subject.handler";
+
+    /** Successful authentications */
+    String AUTHENTICATION_SUCCESS = "authentication.success";
+
+    /** Failed authentications, suffixed by the failure reason */
+    String AUTHENTICATION_FAILURE = "authentication.failure.";
+
+    /** Failed authentications answered by the NegativeCache */
+    String AUTHENTICATION_NEGATIVE_HIT = "authentication.negativeHit";
+
+    /** Time spent exchanging the authorization code during the login callback */
+    String CALLBACK_EXCHANGE = "callback.exchange";
+
+    /** Successful login callbacks */
+    String CALLBACK_SUCCESS = "callback.success";
+
+    /** Failed login callbacks */
+    String CALLBACK_FAILURE = "callback.failure";
+
+    /**
+     * Metrics implementation recording nothing.
+     */
+    Auth0Metrics NOOP = new Auth0Metrics() {
+
+        @Override
+        public void increment(String name) {
+            // Nothing to record
+        }
+
+        @Override
+        public void record(String name, long nanos) {
+            // Nothing to record
+        }
+
+        @Override
+        public void gauge(String name, Supplier<? extends Number> value) {
+            // Nothing to record
+        }
+
+        @Override
+        public Map<String, Object> snapshot() {
+            return Collections.emptyMap();
+        }
+
+    };
+
+    /**
+     * Increments a counter.
+     *
+     * @param name
+     *            counter name
+     */
+    void increment(String name);
+
+    /**
+     * Records a duration.
+     *
+     * @param name
+     *            timer name
+     * @param nanos
+     *            duration, in nanoseconds
+     */
+    void record(String name, long nanos);
+
+    /**
+     * Registers a value read when metrics are reported (cache size, queue depth...).
+     *
+     * @param name
+     *            gauge name
+     * @param value
+     *            value supplier
+     */
+    void gauge(String name, Supplier<? extends Number> value);
+
+    /**
+     * @return current values of all metrics, by name
+     */
+    Map<String, Object> snapshot();
+
+}
@@ -0,0 +1,83 @@
+package net.zileo.ninja.auth0.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.inject.Singleton;
+
+/**
+ * Default {@link Auth0Metrics}, kept in memory : counters are striped ({@link LongAdder}) and durations are recorded in
+ * {@link LatencyHistogram}s, so recording never locks.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class DefaultAuth0Metrics implements Auth0Metrics {
+
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public void increment(String name) {
+
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(name, key -> new LongAdder());
+        }
+        counter.increment();
+
+    }
+
+    @Override
+    public void record(String name, long nanos) {
+
+        LatencyHistogram timer = timers.get(name);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+        timer.record(nanos);
+
+    }
+
+    @Override
+    public void gauge(String name, Supplier<? extends Number> value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * @param name
+     *            counter name
+     * @return counter value
+     */
+    public long getCount(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    /**
+     * @param name
+     *            timer name
+     * @return histogram of the recorded durations, or null if none recorded
+     */
+    public LatencyHistogram getTimer(String name) {
+        return timers.get(name);
+    }
+
+    @Override
+    public Map<String, Object> snapshot() {
+
+        Map<String, Object> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        timers.forEach((name, timer) -> snapshot.put(name, timer.snapshot()));
+        gauges.forEach((name, gauge) -> snapshot.put(name, gauge.get()));
+        return snapshot;
+
+    }
+
+}
@@ -0,0 +1,80 @@
+package net.zileo.ninja.auth0.revocation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe Bloom filter over token digests (see {@link net.zileo.ninja.auth0.cache.TokenDigest}), sized for an
+ * expected number of entries and a 1% false positive rate. Digests being uniformly distributed, their first characters
+ * are used as hashes instead of hashing them again.
+ *
+ * @author jlannoy
+ */
+final class BloomFilter {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final AtomicLongArray bits;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    /**
+     * Constructor.
+     *
+     * @param expectedEntries
+     *            expected number of entries
+     */
+    BloomFilter(int expectedEntries) {
+        long size = (long) Math.ceil(-Math.max(expectedEntries, 1) * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) ((size + 63) / 64));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round(size / (double) Math.max(expectedEntries, 1) * Math.log(2)));
+    }
+
+    void add(String digest) {
+
+        long h1 = hash(digest, 0);
+        long h2 = hash(digest, 10);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word;
+            while (((word = bits.get(index)) & mask) == 0 && !bits.compareAndSet(index, word, word | mask)) {
+                // Retry until set
+            }
+        }
+
+    }
+
+    boolean mightContain(String digest) {
+
+        long h1 = hash(digest, 0);
+        long h2 = hash(digest, 10);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+
+    }
+
+    /**
+     * Reads 10 characters (60 bits) of a digest, or of any other string.
+     */
+    private static long hash(String digest, int offset) {
+
+        long hash = 0;
+        int end = Math.min(digest.length(), offset + 10);
+        for (int i = offset; i < end; i++) {
+            hash = (hash << 6) ^ (hash >>> 58) ^ digest.charAt(i);
+        }
+        // Keeps the second hash odd, so that all probes differ
+        return offset == 0 ? hash : hash | 1;
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package net.zileo.ninja.auth0.revocation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Default {@link RevokedTokens}, kept in the memory of each node.
+ *
+ * @author jlannoy
+ */
+public class InMemoryRevokedTokens implements RevokedTokens {
+
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String key, long expiresAt) {
+
+        revoked.put(key, expiresAt);
+
+    }
+
+    @Override
+    public Long getExpiresAt(String key) {
+
+        return revoked.get(key);
+
+    }
+
+    @Override
+    public void removeExpired(long now) {
+
+        for (Map.Entry<String, Long> entry : revoked.entrySet()) {
+            if (entry.getValue() <= now) {
+                revoked.remove(entry.getKey(), entry.getValue());
+            }
+        }
+
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, Long> action) {
+
+        revoked.forEach(action);
+
+    }
+
+    @Override
+    public int size() {
+
+        return revoked.size();
+
+    }
+
+}
@@ -0,0 +1,264 @@
+package net.zileo.ninja.auth0.revocation;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.cache.InvalidationBroadcaster;
+import net.zileo.ninja.auth0.cache.InvalidationBroadcaster.Invalidation;
+import net.zileo.ninja.auth0.cache.TokenDigest;
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Denylist of Id Tokens revoked before their expiry (on logout for example). Revoked tokens are grouped in generations
+ * by expiry time, each one with its own Bloom filter answering the common "not revoked" case without any map lookup ;
+ * positives are then confirmed with a precise set (see {@link RevokedTokens}). A whole generation is dropped once all its
+ * tokens have expired, so that memory only depends on the number of revoked tokens still valid. Revocations are sent to
+ * the other nodes through the {@link InvalidationBroadcaster}, if any.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class RevocationList {
+
+    private final boolean enabled;
+
+    private final long generationMillis;
+
+    private final int expectedPerGeneration;
+
+    private final long maxTtlMillis;
+
+    private final ConcurrentSkipListMap<Long, BloomFilter> generations = new ConcurrentSkipListMap<>();
+
+    private RevokedTokens revoked = new InMemoryRevokedTokens();
+
+    private InvalidationBroadcaster broadcaster;
+
+    private final AtomicLong purgedGeneration = new AtomicLong();
+
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * Constructor, reading <code>auth0.revocation.*</code> properties and reporting its statistics.
+     *
+     * @param properties
+     *            Ninja's properties
+     * @param metrics
+     *            metrics recorder
+     */
+    @Inject
+    public RevocationList(NinjaProperties properties, Auth0Metrics metrics) {
+        this(properties.getBooleanWithDefault("auth0.revocation.enabled", false), properties.getIntegerWithDefault("auth0.revocation.generation", 3600),
+                properties.getIntegerWithDefault("auth0.revocation.expectedPerGeneration", 100000), properties.getIntegerWithDefault("auth0.revocation.maxTtl", 36000));
+        if (enabled) {
+            metrics.gauge("revocation.size", this::size);
+            metrics.gauge("revocation.falsePositives", this::getFalsePositives);
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param enabled
+     *            false to never revoke tokens
+     * @param generationSeconds
+     *            range of expiry times grouped in one generation, in seconds
+     * @param expectedPerGeneration
+     *            expected number of revoked tokens in a generation, sizing its Bloom filter
+     * @param maxTtlSeconds
+     *            time a revoked token without expiry time is remembered, in seconds
+     */
+    public RevocationList(boolean enabled, long generationSeconds, int expectedPerGeneration, long maxTtlSeconds) {
+        if (generationSeconds <= 0) {
+            throw new IllegalArgumentException("Revocation generation must be positive");
+        }
+        this.enabled = enabled;
+        this.generationMillis = TimeUnit.SECONDS.toMillis(generationSeconds);
+        this.expectedPerGeneration = expectedPerGeneration;
+        this.maxTtlMillis = TimeUnit.SECONDS.toMillis(maxTtlSeconds);
+    }
+
+    /**
+     * Sets the precise set of revoked tokens (injected by Guice if bound, but can be set manually), and fills the Bloom
+     * filters with the tokens it already holds.
+     *
+     * @param revokedTokens
+     *            revoked tokens set, shared between nodes for example
+     */
+    @Inject(optional = true)
+    public void setRevokedTokens(RevokedTokens revokedTokens) {
+        this.revoked = revokedTokens;
+        if (enabled) {
+            long now = System.currentTimeMillis();
+            revokedTokens.forEach((key, expiresAt) -> {
+                if (expiresAt > now) {
+                    filter(expiresAt).add(key);
+                }
+            });
+        }
+    }
+
+    /**
+     * Sets the invalidation broadcaster (injected by Guice if bound, but can be set manually), and listens to the
+     * revocations sent by other nodes.
+     *
+     * @param broadcaster
+     *            invalidation broadcaster, or null to only revoke tokens locally
+     */
+    @Inject(optional = true)
+    public void setBroadcaster(InvalidationBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+        if (broadcaster != null) {
+            broadcaster.subscribe(invalidation -> {
+                if (invalidation.isRevocation()) {
+                    add(invalidation.getValue(), invalidation.getExpiresAt());
+                }
+            });
+        }
+    }
+
+    /**
+     * @return true if tokens can be revoked
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Revokes an Id Token until its expiry time.
+     *
+     * @param idToken
+     *            Auth0 Id Token
+     */
+    public void revokeToken(String idToken) {
+
+        Date expiresAt = null;
+        try {
+            expiresAt = JWT.decode(idToken).getExpiresAt();
+        } catch (JWTDecodeException e) {
+            // Still revoked, for the maximum time to live
+        }
+
+        revoke(TokenDigest.of(idToken), expiresAt);
+
+    }
+
+    /**
+     * Revokes a token until the given expiry date, or until the configured maximum time to live if none, on all nodes.
+     *
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     * @param tokenExpiresAt
+     *            expiry date of the token, may be null
+     */
+    public void revoke(String key, Date tokenExpiresAt) {
+
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long expiresAt = tokenExpiresAt != null ? tokenExpiresAt.getTime() : now + maxTtlMillis;
+        if (expiresAt <= now) {
+            return;
+        }
+
+        // Added locally right away, the broadcast being possibly asynchronous
+        add(key, expiresAt);
+        if (broadcaster != null) {
+            broadcaster.broadcast(Invalidation.ofRevocation(key, expiresAt));
+        }
+
+    }
+
+    private void add(String key, long expiresAt) {
+
+        long now = System.currentTimeMillis();
+        if (!enabled || expiresAt <= now) {
+            return;
+        }
+
+        // The precise entry comes first, so that a concurrent check never sees a filter hit without it
+        revoked.put(key, expiresAt);
+        filter(expiresAt).add(key);
+
+        purge(now);
+
+    }
+
+    private BloomFilter filter(long expiresAt) {
+
+        return generations.computeIfAbsent(expiresAt / generationMillis, generation -> new BloomFilter(expectedPerGeneration));
+
+    }
+
+    /**
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     * @return true if the token has been revoked and is not expired yet
+     */
+    public boolean isRevoked(String key) {
+
+        // Checked locally, the precise set being possibly remote
+        if (!enabled || generations.isEmpty()) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        purge(now);
+
+        for (BloomFilter filter : generations.tailMap(now / generationMillis).values()) {
+            if (filter.mightContain(key)) {
+                Long expiresAt = revoked.getExpiresAt(key);
+                if (expiresAt != null && expiresAt > now) {
+                    return true;
+                }
+                falsePositives.increment();
+                return false;
+            }
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Drops the generations whose tokens have all expired, at most once per generation.
+     */
+    private void purge(long now) {
+
+        long current = now / generationMillis;
+        long purged = purgedGeneration.get();
+        if (purged >= current || !purgedGeneration.compareAndSet(purged, current)) {
+            return;
+        }
+
+        generations.headMap(current).clear();
+        revoked.removeExpired(now);
+
+    }
+
+    /**
+     * @return number of revoked tokens (including expired ones not yet purged)
+     */
+    public int size() {
+        return revoked.size();
+    }
+
+    /**
+     * @return number of Bloom filter hits not confirmed by the precise set
+     */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+}
@@ -0,0 +1,55 @@
+package net.zileo.ninja.auth0.revocation;
+
+import java.util.function.BiConsumer;
+
+import net.zileo.ninja.auth0.cache.TokenDigest;
+
+/**
+ * Precise set of revoked tokens behind the Bloom filters of the {@link RevocationList}, only looked up when a filter
+ * answers "maybe revoked". Kept in memory by default ; bind your own implementation in your Guice module (backed by
+ * Redis for example) to share it between nodes. Calls are made on the request path, so implementations should use
+ * short timeouts.
+ *
+ * @author jlannoy
+ */
+public interface RevokedTokens {
+
+    /**
+     * Adds a revoked token. Called again by each node receiving the revocation, so it should be idempotent.
+     *
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     * @param expiresAt
+     *            time until which the token is revoked, in milliseconds since epoch
+     */
+    void put(String key, long expiresAt);
+
+    /**
+     * @param key
+     *            token digest (see {@link TokenDigest})
+     * @return time until which the token is revoked, in milliseconds since epoch, or null if not revoked
+     */
+    Long getExpiresAt(String key);
+
+    /**
+     * Forgets the tokens revoked until before the given time.
+     *
+     * @param now
+     *            current time, in milliseconds since epoch
+     */
+    void removeExpired(long now);
+
+    /**
+     * Walks through all the revoked tokens, to fill the Bloom filters of a starting node.
+     *
+     * @param action
+     *            called with each token digest and the time until which it is revoked
+     */
+    void forEach(BiConsumer<String, Long> action);
+
+    /**
+     * @return number of revoked tokens (including expired ones not yet removed)
+     */
+    int size();
+
+}
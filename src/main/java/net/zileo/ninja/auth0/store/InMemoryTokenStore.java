@@ -0,0 +1,100 @@
+package net.zileo.ninja.auth0.store;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.cache.BoundedExpiringMap;
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Default {@link TokenStore}, keeping tokens in memory. Bounded in size, an entry never outlives its token expiry time
+ * (unless renewable) nor the configured time to live. Tokens are lost on restart, which logs users out.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class InMemoryTokenStore implements TokenStore {
+
+    private final long ttlMillis;
+
+    private final BoundedExpiringMap<StoredToken> tokens;
+
+    /**
+     * Constructor, reading <code>auth0.store.*</code> properties.
+     *
+     * @param properties
+     *            Ninja's properties
+     */
+    public InMemoryTokenStore(NinjaProperties properties) {
+        this(properties.getIntegerWithDefault("auth0.store.maxSize", 10000), properties.getIntegerWithDefault("auth0.store.ttl", 36000));
+    }
+
+    /**
+     * Constructor, reading <code>auth0.store.*</code> properties and reporting store statistics.
+     *
+     * @param properties
+     *            Ninja's properties
+     * @param metrics
+     *            metrics recorder
+     */
+    @Inject
+    public InMemoryTokenStore(NinjaProperties properties, Auth0Metrics metrics) {
+        this(properties);
+        metrics.gauge("store.size", this::size);
+        metrics.gauge("store.evictions", this::getEvictions);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize
+     *            maximum number of stored tokens
+     * @param ttlSeconds
+     *            maximum time to live of a token, in seconds
+     */
+    public InMemoryTokenStore(int maxSize, long ttlSeconds) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.tokens = new BoundedExpiringMap<>(maxSize);
+    }
+
+    @Override
+    public void put(String handle, StoredToken token) {
+
+        // A renewable token is kept after its expiry time, so that it can still be renewed
+        long expiresAt = token.getRefreshToken() != null ? Long.MAX_VALUE : token.getExpiresAt();
+        tokens.put(handle, token, Math.min(expiresAt, System.currentTimeMillis() + ttlMillis));
+
+    }
+
+    @Override
+    public StoredToken get(String handle) {
+
+        return tokens.get(handle);
+
+    }
+
+    @Override
+    public void remove(String handle) {
+
+        tokens.remove(handle);
+
+    }
+
+    /**
+     * @return number of stored tokens (including expired ones not yet evicted)
+     */
+    public int size() {
+        return tokens.size();
+    }
+
+    /**
+     * @return number of tokens removed because of their expiry or of the size limit
+     */
+    public long getEvictions() {
+        return tokens.getEvictions();
+    }
+
+}
@@ -0,0 +1,265 @@
+package net.zileo.ninja.auth0.store;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.controllers.Auth0Controller;
+import net.zileo.ninja.auth0.subject.Subject;
+import ninja.Context;
+import ninja.session.Session;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Reads and writes the Id Token of the current session, according to the <code>auth0.session.storage</code> property
+ * :
+ * <ul>
+ * <li><code>cookie</code> (default) : the Id Token itself is kept in Ninja's session cookie.</li>
+ * <li><code>server</code> : the session cookie only holds a random handle, the Id Token and its Subject being kept in
+ * the {@link TokenStore}.</li>
+ * </ul>
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class SessionTokens {
+
+    public final static String STORED_TOKEN_CTX_KEY = "contextStoredToken";
+
+    private final static SecureRandom RANDOM = new SecureRandom();
+
+    private final static int HANDLE_BYTES = 32;
+
+    private final boolean serverSide;
+
+    private final TokenStore store;
+
+    private TokenRenewer renewer;
+
+    /**
+     * Constructor, reading the <code>auth0.session.storage</code> property.
+     *
+     * @param properties
+     *            Ninja's properties
+     * @param store
+     *            server side token store
+     */
+    @Inject
+    public SessionTokens(NinjaProperties properties, TokenStore store) {
+        this("server".equalsIgnoreCase(properties.getWithDefault("auth0.session.storage", "cookie")), store);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param serverSide
+     *            true to only keep a handle in session
+     * @param store
+     *            server side token store
+     */
+    public SessionTokens(boolean serverSide, TokenStore store) {
+        this.serverSide = serverSide;
+        this.store = store;
+    }
+
+    /**
+     * Sets the renewer of the Id Tokens kept server side (injected by Guice, but can be set manually).
+     *
+     * @param renewer
+     *            token renewer, or null to never renew tokens
+     */
+    @Inject(optional = true)
+    public void setRenewer(TokenRenewer renewer) {
+        this.renewer = renewer;
+    }
+
+    /**
+     * @return true if Id Tokens are kept server side
+     */
+    public boolean isServerSide() {
+        return serverSide;
+    }
+
+    /**
+     * Saves the Id Token of a newly authenticated user.
+     *
+     * @param session
+     *            current Ninja's session
+     * @param idToken
+     *            Auth0 Id Token
+     * @param subject
+     *            Subject already built from this token, may be null
+     * @param expiresAt
+     *            expiry date of the token, may be null
+     */
+    public void save(Session session, String idToken, Subject subject, Date expiresAt) {
+
+        save(session, idToken, null, subject, expiresAt);
+
+    }
+
+    /**
+     * Saves the Id Token of a newly authenticated user, along with its refresh token. The refresh token is only kept
+     * server side, never in session.
+     *
+     * @param session
+     *            current Ninja's session
+     * @param idToken
+     *            Auth0 Id Token
+     * @param refreshToken
+     *            refresh token (see {@link TokenRenewer}), may be null
+     * @param subject
+     *            Subject already built from this token, may be null
+     * @param expiresAt
+     *            expiry date of the token, may be null
+     */
+    public void save(Session session, String idToken, String refreshToken, Subject subject, Date expiresAt) {
+
+        if (!serverSide) {
+            session.put(Auth0Controller.SESSION_ID_TOKEN, idToken);
+            return;
+        }
+
+        String previous = session.get(Auth0Controller.SESSION_ID_TOKEN);
+        if (previous != null) {
+            store.remove(previous);
+        }
+
+        String handle = newHandle();
+        store.put(handle, new StoredToken(idToken, refreshToken, subject, expiresAt != null ? expiresAt.getTime() : Long.MAX_VALUE));
+        session.put(Auth0Controller.SESSION_ID_TOKEN, handle);
+
+    }
+
+    /**
+     * @param session
+     *            current Ninja's session
+     * @return the stored token of the session (a new instance without Subject in cookie mode), or null ; renewed first
+     *         if about to expire, and null if expired and not renewable (see {@link TokenRenewer})
+     */
+    public StoredToken get(Session session) {
+
+        String value = session.get(Auth0Controller.SESSION_ID_TOKEN);
+        if (value == null) {
+            return null;
+        }
+        if (!serverSide) {
+            return new StoredToken(value, null, Long.MAX_VALUE);
+        }
+
+        StoredToken token = store.get(value);
+        return token != null && renewer != null ? renewer.renew(value, token) : token;
+
+    }
+
+    /**
+     * Same as {@link #get(Session)}, but looked up (and renewed) at most once per request, the stored token being kept
+     * in Ninja's context.
+     *
+     * @param context
+     *            current Ninja's context
+     * @return the stored token of the session, or null
+     */
+    public StoredToken get(Context context) {
+
+        StoredToken token = context.getAttribute(STORED_TOKEN_CTX_KEY, StoredToken.class);
+        if (token == null) {
+            token = get(context.getSession());
+            if (token != null) {
+                context.setAttribute(STORED_TOKEN_CTX_KEY, token);
+            }
+        }
+        return token;
+
+    }
+
+    /**
+     * @param session
+     *            current Ninja's session
+     * @return the Id Token of the session, or null
+     */
+    public String getIdToken(Session session) {
+
+        StoredToken token = get(session);
+        return token != null ? token.getIdToken() : null;
+
+    }
+
+    /**
+     * Same as {@link #getIdToken(Session)}, but never renewing the token : to be used when the session ends, so that
+     * the token revoked or evicted from caches is the one actually used so far.
+     *
+     * @param session
+     *            current Ninja's session
+     * @return the Id Token of the session, as stored, or null
+     */
+    public String peek(Session session) {
+
+        String value = session.get(Auth0Controller.SESSION_ID_TOKEN);
+        if (value == null || !serverSide) {
+            return value;
+        }
+
+        StoredToken token = store.get(value);
+        return token != null ? token.getIdToken() : null;
+
+    }
+
+    /**
+     * @param session
+     *            current Ninja's session
+     * @return true if the session holds a token (or a handle to a still stored token, renewed first if expired)
+     */
+    public boolean isPresent(Session session) {
+
+        if (serverSide) {
+            return get(session) != null;
+        }
+        return session.get(Auth0Controller.SESSION_ID_TOKEN) != null;
+
+    }
+
+    /**
+     * Same as {@link #isPresent(Session)}, the stored token being kept in Ninja's context for the rest of the request
+     * (see {@link #get(Context)}).
+     *
+     * @param context
+     *            current Ninja's context
+     * @return true if the session holds a token (or a handle to a still stored token, renewed first if expired)
+     */
+    public boolean isPresent(Context context) {
+
+        if (serverSide) {
+            return get(context) != null;
+        }
+        return context.getSession().get(Auth0Controller.SESSION_ID_TOKEN) != null;
+
+    }
+
+    /**
+     * Forgets the token of the session. The session itself is left untouched.
+     *
+     * @param session
+     *            current Ninja's session
+     */
+    public void remove(Session session) {
+
+        String value = session.get(Auth0Controller.SESSION_ID_TOKEN);
+        if (serverSide && value != null) {
+            store.remove(value);
+        }
+
+    }
+
+    private static String newHandle() {
+
+        byte[] bytes = new byte[HANDLE_BYTES];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+    }
+
+}
@@ -0,0 +1,98 @@
+package net.zileo.ninja.auth0.store;
+
+import net.zileo.ninja.auth0.cache.TokenDigest;
+import net.zileo.ninja.auth0.subject.Subject;
+
+/**
+ * Id Token kept server side, along with the Subject built from it once known.
+ *
+ * @author jlannoy
+ */
+public final class StoredToken {
+
+    private final String idToken;
+
+    private final long expiresAt;
+
+    private final String refreshToken;
+
+    private volatile Subject subject;
+
+    private volatile String digest;
+
+    /**
+     * Constructor.
+     *
+     * @param idToken
+     *            Auth0 Id Token
+     * @param subject
+     *            Subject built from this token, may be null
+     * @param expiresAt
+     *            expiry time of the token, in milliseconds since epoch
+     */
+    public StoredToken(String idToken, Subject subject, long expiresAt) {
+        this(idToken, null, subject, expiresAt);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param idToken
+     *            Auth0 Id Token
+     * @param refreshToken
+     *            refresh token allowing to renew the Id Token (see {@link TokenRenewer}), may be null
+     * @param subject
+     *            Subject built from this token, may be null
+     * @param expiresAt
+     *            expiry time of the token, in milliseconds since epoch
+     */
+    public StoredToken(String idToken, String refreshToken, Subject subject, long expiresAt) {
+        this.idToken = idToken;
+        this.refreshToken = refreshToken;
+        this.subject = subject;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getIdToken() {
+        return idToken;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * @return digest of the Id Token (see {@link TokenDigest}), computed once
+     */
+    public String getDigest() {
+        String value = digest;
+        if (value == null) {
+            value = TokenDigest.of(idToken);
+            digest = value;
+        }
+        return value;
+    }
+
+    /**
+     * @return refresh token, or null if the Id Token can't be renewed
+     */
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    /**
+     * @return Subject built from this token, or null if not yet built
+     */
+    public Subject getSubject() {
+        return subject;
+    }
+
+    /**
+     * @param subject
+     *            Subject built from this token
+     */
+    public void setSubject(Subject subject) {
+        this.subject = subject;
+    }
+
+}
@@ -0,0 +1,304 @@
+package net.zileo.ninja.auth0.store;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.auth0.exception.Auth0Exception;
+import com.auth0.json.auth.TokenHolder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import net.zileo.ninja.auth0.cache.BoundedExpiringMap;
+import net.zileo.ninja.auth0.client.CodeExchanger;
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import ninja.lifecycle.Dispose;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Renews Id Tokens kept server side before they expire, with the refresh token received at login thanks to the
+ * <code>offline_access</code> scope, so that users don't all go through the Auth0 login page again when their tokens
+ * expire at the same time.
+ * <p>
+ * A token is renewed in the background when it is used within <code>auth0.refresh.ahead</code> seconds of its expiry,
+ * minus a random-looking delay (up to <code>auth0.refresh.jitter</code> seconds) derived from its session handle, so
+ * that tokens issued together are not renewed together. An already expired token is renewed synchronously, the request
+ * waiting for it ; if it can't be renewed, it is removed from the store, the request being then handled as without
+ * session. There is at most one renewal in progress per session, concurrent requests sharing it, and a failed renewal
+ * of a still valid token is not retried for the same session before a while.
+ *
+ * @author jlannoy
+ */
+@Singleton
+public class TokenRenewer {
+
+    private final static Logger logger = LoggerFactory.getLogger(TokenRenewer.class);
+
+    private final static long RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final static int MAX_BACKOFFS = 10000;
+
+    private boolean enabled;
+
+    private long aheadMillis;
+
+    private long jitterMillis;
+
+    private long timeoutMillis;
+
+    private TokenStore store;
+
+    private CodeExchanger codeExchanger;
+
+    private ThreadPoolExecutor executor;
+
+    private final ConcurrentHashMap<String, CompletableFuture<StoredToken>> renewals = new ConcurrentHashMap<>();
+
+    // Sessions whose last renewal failed, until they can be retried
+    private final BoundedExpiringMap<Boolean> backoffs = new BoundedExpiringMap<>(MAX_BACKOFFS);
+
+    private final LongAdder renewed = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    @Inject
+    public void init(NinjaProperties properties, TokenStore store, CodeExchanger codeExchanger, Auth0Metrics metrics) {
+
+        boolean enabled = properties.getBooleanWithDefault("auth0.refresh.enabled", false);
+        if (enabled && !"server".equalsIgnoreCase(properties.getWithDefault("auth0.session.storage", "cookie"))) {
+            throw new IllegalArgumentException("auth0.refresh.enabled requires auth0.session.storage = server, refresh tokens can't be kept in session");
+        }
+
+        configure(enabled, store, codeExchanger, properties.getIntegerWithDefault("auth0.refresh.ahead", 300), properties.getIntegerWithDefault("auth0.refresh.jitter", 120),
+                properties.getIntegerWithDefault("auth0.refresh.timeout", 5));
+
+        if (enabled) {
+            metrics.gauge("refresh.renewed", this::getRenewed);
+            metrics.gauge("refresh.failures", this::getFailures);
+            metrics.gauge("refresh.coalesced", this::getCoalesced);
+        }
+
+    }
+
+    /**
+     * Configures the renewals.
+     *
+     * @param enabled
+     *            false to never renew tokens
+     * @param store
+     *            server side token store
+     * @param codeExchanger
+     *            exchanger performing the refresh calls
+     * @param aheadSeconds
+     *            how long before their expiry tokens are renewed, in seconds
+     * @param jitterSeconds
+     *            maximum additional delay spreading renewals, in seconds
+     * @param timeoutSeconds
+     *            maximum time a request waits for the renewal of its expired token, in seconds
+     */
+    public void configure(boolean enabled, TokenStore store, CodeExchanger codeExchanger, long aheadSeconds, long jitterSeconds, long timeoutSeconds) {
+
+        this.enabled = enabled;
+        this.store = store;
+        this.codeExchanger = codeExchanger;
+        this.aheadMillis = TimeUnit.SECONDS.toMillis(aheadSeconds);
+        this.jitterMillis = TimeUnit.SECONDS.toMillis(jitterSeconds);
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+
+        stop();
+        if (enabled) {
+            // Renewals mostly wait for the code exchanger, which enforces its own limits
+            AtomicInteger count = new AtomicInteger();
+            executor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1000), runnable -> {
+                Thread thread = new Thread(runnable, "auth0-refresh-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+    }
+
+    /**
+     * @return true if Id Tokens are renewed, and the <code>offline_access</code> scope requested
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the renewal of a token if it is about to expire, and waits for it if already expired. An expired token
+     * that can't be renewed is removed from the store.
+     *
+     * @param handle
+     *            session handle of the token
+     * @param token
+     *            current stored token
+     * @return the renewed token if available, else the current one if still valid, else null
+     */
+    public StoredToken renew(String handle, StoredToken token) {
+
+        if (!enabled || token.getRefreshToken() == null) {
+            return token;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now < getRenewalTime(handle, token)) {
+            return token;
+        }
+
+        boolean expired = now >= token.getExpiresAt();
+        if (!expired && backoffs.get(handle) != null) {
+            return token;
+        }
+
+        CompletableFuture<StoredToken> renewal = start(handle, token);
+        if (!expired) {
+            return token;
+        }
+
+        StoredToken renewed;
+        try {
+
+            renewed = renewal.get(timeoutMillis, TimeUnit.MILLISECONDS);
+
+        } catch (TimeoutException | ExecutionException e) {
+
+            renewed = token;
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            renewed = token;
+
+        }
+
+        if (renewed.getExpiresAt() <= System.currentTimeMillis()) {
+            // Rather than keeping an expired token, on which each request would wait for another renewal
+            store.remove(handle);
+            backoffs.remove(handle);
+            return null;
+        }
+        return renewed;
+
+    }
+
+    /**
+     * @param handle
+     *            session handle of the token
+     * @param token
+     *            stored token
+     * @return time from which the token is renewed, in milliseconds since epoch
+     */
+    public long getRenewalTime(String handle, StoredToken token) {
+        return token.getExpiresAt() - aheadMillis - Math.floorMod((long) handle.hashCode(), jitterMillis + 1);
+    }
+
+    private CompletableFuture<StoredToken> start(String handle, StoredToken token) {
+
+        CompletableFuture<StoredToken> renewal = new CompletableFuture<>();
+        CompletableFuture<StoredToken> existing = renewals.putIfAbsent(handle, renewal);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        try {
+            executor.execute(() -> execute(handle, token, renewal));
+        } catch (RejectedExecutionException e) {
+            // Will be retried by a next request
+            renewals.remove(handle, renewal);
+            renewal.complete(token);
+        }
+        return renewal;
+
+    }
+
+    private void execute(String handle, StoredToken token, CompletableFuture<StoredToken> renewal) {
+
+        try {
+
+            TokenHolder holder = codeExchanger.refresh(token.getRefreshToken());
+            if (holder.getIdToken() == null) {
+                throw new Auth0Exception("No Id Token received, check the openid scope");
+            }
+
+            // Auth0 only sends a new refresh token when rotating them
+            String refreshToken = holder.getRefreshToken() != null ? holder.getRefreshToken() : token.getRefreshToken();
+            StoredToken renewedToken = new StoredToken(holder.getIdToken(), refreshToken, null, System.currentTimeMillis() + holder.getExpiresIn() * 1000);
+
+            // Not brought back if logged out meanwhile
+            if (store.get(handle) != null) {
+                store.put(handle, renewedToken);
+            }
+            backoffs.remove(handle);
+            renewed.increment();
+            renewal.complete(renewedToken);
+
+        } catch (Auth0Exception | RuntimeException e) {
+
+            failures.increment();
+            logger.warn("Unable to renew Id Token : {}", e.toString());
+            backoffs.put(handle, Boolean.TRUE, System.currentTimeMillis() + RETRY_MILLIS);
+            renewal.complete(token);
+
+        } finally {
+
+            renewals.remove(handle, renewal);
+
+        }
+
+    }
+
+    /**
+     * @return number of renewed tokens
+     */
+    public long getRenewed() {
+        return renewed.sum();
+    }
+
+    /**
+     * @return number of failed renewals
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return number of requests that joined a renewal already in progress
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of renewals in progress
+     */
+    public int getInFlight() {
+        return renewals.size();
+    }
+
+    /**
+     * Stops the renewal threads.
+     */
+    @Dispose
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+package net.zileo.ninja.auth0.store;
+
+import com.google.inject.ImplementedBy;
+
+/**
+ * Server side storage of Id Tokens, used when <code>auth0.session.storage = server</code>. The session then only
+ * holds an opaque handle. Bind your own implementation in your Guice module to share tokens between several nodes.
+ *
+ * @author jlannoy
+ */
+@ImplementedBy(InMemoryTokenStore.class)
+public interface TokenStore {
+
+    /**
+     * Stores a token. It should not be kept after its expiry time.
+     *
+     * @param handle
+     *            opaque handle, stored in session
+     * @param token
+     *            token to store
+     */
+    void put(String handle, StoredToken token);
+
+    /**
+     * @param handle
+     *            opaque handle, stored in session
+     * @return stored token, or null if unknown or expired
+     */
+    StoredToken get(String handle);
+
+    /**
+     * @param handle
+     *            opaque handle, stored in session
+     */
+    void remove(String handle);
+
+}
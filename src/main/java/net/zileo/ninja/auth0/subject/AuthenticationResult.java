@@ -0,0 +1,108 @@
+package net.zileo.ninja.auth0.subject;
+
+/**
+ * Outcome of an authentication : either a Subject, or a {@link FailureReason}. Failures are preallocated, so that
+ * rejecting a token neither allocates nor captures any stack trace ; only failures raised as exceptions by a token
+ * handler keep their cause.
+ *
+ * @author jlannoy
+ */
+public final class AuthenticationResult<P extends Subject> {
+
+    private static final AuthenticationResult<?>[] FAILURES = new AuthenticationResult<?>[FailureReason.values().length];
+
+    static {
+        for (FailureReason reason : FailureReason.values()) {
+            FAILURES[reason.ordinal()] = new AuthenticationResult<>(null, reason, null);
+        }
+    }
+
+    private final P subject;
+
+    private final FailureReason failure;
+
+    private final IllegalArgumentException cause;
+
+    private AuthenticationResult(P subject, FailureReason failure, IllegalArgumentException cause) {
+        this.subject = subject;
+        this.failure = failure;
+        this.cause = cause;
+    }
+
+    /**
+     * @param subject
+     *            authenticated Subject
+     * @return a successful result
+     */
+    public static <P extends Subject> AuthenticationResult<P> success(P subject) {
+        return new AuthenticationResult<>(subject, null, null);
+    }
+
+    /**
+     * @param reason
+     *            failure reason
+     * @return the shared failed result for this reason
+     */
+    @SuppressWarnings("unchecked")
+    public static <P extends Subject> AuthenticationResult<P> failure(FailureReason reason) {
+        return (AuthenticationResult<P>) FAILURES[reason.ordinal()];
+    }
+
+    /**
+     * @param reason
+     *            failure reason
+     * @param cause
+     *            exception raised while authenticating
+     * @return a failed result keeping its cause
+     */
+    public static <P extends Subject> AuthenticationResult<P> failure(FailureReason reason, IllegalArgumentException cause) {
+        return new AuthenticationResult<>(null, reason, cause);
+    }
+
+    /**
+     * @return true if a Subject has been authenticated
+     */
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * @return authenticated Subject, or null if failed
+     */
+    public P getSubject() {
+        return subject;
+    }
+
+    /**
+     * @return failure reason, or null if successful
+     */
+    public FailureReason getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return failure message, or null if successful
+     */
+    public String getMessage() {
+        if (cause != null) {
+            return cause.getMessage();
+        }
+        return failure != null ? failure.getMessage() : null;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if failed, with the original cause if any
+     * @return authenticated Subject
+     */
+    public P orThrow() throws IllegalArgumentException {
+        if (cause != null) {
+            throw cause;
+        }
+        if (failure != null) {
+            throw new IllegalArgumentException(failure.getMessage());
+        }
+        return subject;
+    }
+
+}
@@ -0,0 +1,110 @@
+package net.zileo.ninja.auth0.subject;
+
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+
+/**
+ * Reasons why a Subject could not be authenticated. Each one comes with its message and metric name, built once, and
+ * tells whether the same token would fail again for the same reason (see
+ * {@link net.zileo.ninja.auth0.cache.NegativeCache}).
+ *
+ * @author jlannoy
+ */
+public enum FailureReason {
+
+    NO_SESSION("no_session", "No Id Token in session"),
+
+    NO_TOKEN("no_token", "No Id Token provided", false),
+
+    MALFORMED("shape", "Provided Id Token rejected by the shape check"),
+
+    ALGORITHM("algorithm", "Provided Id Token rejected by the algorithm check"),
+
+    EXPIRED("time", "Provided Id Token rejected by the time check"),
+
+    ISSUER("issuer", "Provided Id Token rejected by the issuer check"),
+
+    AUDIENCE("audience", "Provided Id Token rejected by the audience check"),
+
+    CHECK("check", "Provided Id Token rejected by a token check"),
+
+    REVOKED("revoked", "Provided Id Token has been revoked"),
+
+    INVALID_TOKEN("invalid_token", "Unable to decode provided Id Token"),
+
+    UNKNOWN_KEY("unknown_key", "No known key to verify provided Id Token", false),
+
+    NO_USER_ID("no_user_id", "No User Id in provided Id Token"),
+
+    REJECTED("rejected", "Unable to create Subject from provided Id Token");
+
+    private final String code;
+
+    private final String message;
+
+    private final String metricName;
+
+    private final boolean cacheable;
+
+    private FailureReason(String code, String message) {
+        this(code, message, true);
+    }
+
+    private FailureReason(String code, String message, boolean cacheable) {
+        this.code = code;
+        this.message = message;
+        this.metricName = Auth0Metrics.AUTHENTICATION_FAILURE + code;
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * @return short code, like <code>revoked</code>
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return human readable message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return name of the failure counter (see {@link Auth0Metrics#AUTHENTICATION_FAILURE})
+     */
+    public String getMetricName() {
+        return metricName;
+    }
+
+    /**
+     * @return true if the same token will always fail for this reason, false for transient failures (like a signing key
+     *         not yet fetched)
+     */
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * @param checkName
+     *            name of a {@link net.zileo.ninja.auth0.jwt.TokenCheck}
+     * @return the matching reason, or {@link #CHECK} for custom checks
+     */
+    public static FailureReason ofCheck(String checkName) {
+        switch (checkName) {
+        case "shape":
+            return MALFORMED;
+        case "algorithm":
+            return ALGORITHM;
+        case "time":
+            return EXPIRED;
+        case "issuer":
+            return ISSUER;
+        case "audience":
+            return AUDIENCE;
+        default:
+            return CHECK;
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package net.zileo.ninja.auth0.subject;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maps a field, or a constructor parameter, of a {@link MappedSubject} class from an Id Token claim. Supported types
+ * are String, boolean, int, long, double (and their wrappers), Date, String[] and List&lt;String&gt;. A missing claim
+ * gives null, or false or 0 for primitive types.
+ * 
+ * @author jlannoy
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target({
+        ElementType.FIELD, ElementType.PARAMETER
+})
+public @interface FromClaim {
+
+    /**
+     * @return claim name, like <code>email</code>
+     */
+    String value();
+
+    /**
+     * @return true to prefix the claim name with the namespace of the {@link MappedSubject}
+     */
+    boolean namespaced() default false;
+
+}
@@ -0,0 +1,37 @@
+package net.zileo.ninja.auth0.subject;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a Subject class whose fields, or constructor parameters, are mapped from Id Token claims (see
+ * {@link FromClaim}). With the <code>ninja-auth0-processor</code> module on your compile path, a
+ * <code>{Subject}TokenHandler</code> class is generated next to it : a token handler building your Subject with
+ * straight-line code, without reflection nor claim type probing.
+ * 
+ * @author jlannoy
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target({
+        ElementType.TYPE
+})
+public @interface MappedSubject {
+
+    /**
+     * @return scope requested on login
+     */
+    String scope() default "openid email";
+
+    /**
+     * @return namespace of the claims marked as namespaced, like <code>https://your.domain/</code>
+     */
+    String namespace() default "";
+
+    /**
+     * @return true to reject tokens without a verified email address
+     */
+    boolean verifiedEmail() default false;
+
+}
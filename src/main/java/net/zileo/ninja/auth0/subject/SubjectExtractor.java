@@ -5,6 +5,7 @@ import com.google.inject.Inject;
 import net.zileo.ninja.auth0.filters.AuthenticateFilter;
 import net.zileo.ninja.auth0.handlers.Auth0TokenHandler;
 import ninja.Context;
+import ninja.exceptions.ForbiddenRequestException;
 import ninja.params.ArgumentExtractor;
 
 /**
@@ -38,11 +39,13 @@ public class SubjectExtractor implements ArgumentExtractor<Subject> {
             return context.getAttribute(AuthenticateFilter.SUBJECT_CTX_KEY, Subject.class);
         }
 
-        try {
-            return this.tokenHandler.buildSubject(context);
-        } catch (IllegalArgumentException e) {
-            return null;
+        // Else build it, once for all the parameters of the request
+        SubjectHolder holder = SubjectHolder.of(context, tokenHandler);
+        AuthenticationResult<? extends Subject> result = holder.authenticate();
+        if (!result.isSuccess() && holder.isRequired()) {
+            throw new ForbiddenRequestException(result.getMessage());
         }
+        return result.getSubject();
 
     }
 
@@ -0,0 +1,118 @@
+package net.zileo.ninja.auth0.subject;
+
+import net.zileo.ninja.auth0.filters.AuthenticateFilter;
+import net.zileo.ninja.auth0.handlers.Auth0TokenHandler;
+import ninja.Context;
+
+/**
+ * Request scoped holder of the current Subject, stored in Ninja's context. The Subject is built the first time it is
+ * requested, and at most once per request, whatever the number of filters and {@link Auth0} parameters asking for it.
+ * A failure is remembered too.
+ *
+ * @author jlannoy
+ */
+public final class SubjectHolder {
+
+    public final static String HOLDER_CTX_KEY = "contextSubjectHolder";
+
+    private final Context context;
+
+    private final Auth0TokenHandler<? extends Subject> tokenHandler;
+
+    private boolean required;
+
+    private boolean resolved;
+
+    private AuthenticationResult<? extends Subject> result;
+
+    private SubjectHolder(Context context, Auth0TokenHandler<? extends Subject> tokenHandler) {
+        this.context = context;
+        this.tokenHandler = tokenHandler;
+    }
+
+    /**
+     * Gets the holder of the current request, creating it if needed.
+     * 
+     * @param context
+     *            current Ninja's context
+     * @param tokenHandler
+     *            token handler building the Subject
+     * @return the request Subject holder
+     */
+    public static SubjectHolder of(Context context, Auth0TokenHandler<? extends Subject> tokenHandler) {
+
+        SubjectHolder holder = context.getAttribute(HOLDER_CTX_KEY, SubjectHolder.class);
+        if (holder == null) {
+            holder = new SubjectHolder(context, tokenHandler);
+            context.setAttribute(HOLDER_CTX_KEY, holder);
+        }
+        return holder;
+
+    }
+
+    /**
+     * @param context
+     *            current Ninja's context
+     * @return the holder of the current request, or null if none created yet
+     */
+    public static SubjectHolder get(Context context) {
+        return context.getAttribute(HOLDER_CTX_KEY, SubjectHolder.class);
+    }
+
+    /**
+     * Marks the Subject as required by the current route (protected by {@link AuthenticateFilter}).
+     * 
+     * @return this holder
+     */
+    public SubjectHolder require() {
+        this.required = true;
+        return this;
+    }
+
+    /**
+     * @return true if the current route requires an authenticated Subject
+     */
+    public boolean isRequired() {
+        return required;
+    }
+
+    /**
+     * @return true if the Subject has already been built (or has failed to)
+     */
+    public boolean isResolved() {
+        return resolved;
+    }
+
+    /**
+     * Authenticates the Subject on first call, then returns the same result.
+     * 
+     * @return current Subject, or failure reason
+     */
+    public AuthenticationResult<? extends Subject> authenticate() {
+
+        if (!resolved) {
+            result = tokenHandler.authenticate(context);
+            if (result.isSuccess()) {
+                context.setAttribute(AuthenticateFilter.SUBJECT_CTX_KEY, result.getSubject());
+            }
+            resolved = true;
+        }
+
+        return result;
+
+    }
+
+    /**
+     * Builds the Subject on first call, then returns the same Subject, or throws the same failure.
+     * 
+     * @throws IllegalArgumentException
+     *             if the Subject can't be built
+     * @return current Subject
+     */
+    public Subject resolve() throws IllegalArgumentException {
+
+        return authenticate().orThrow();
+
+    }
+
+}
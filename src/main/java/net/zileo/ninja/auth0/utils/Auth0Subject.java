@@ -1,27 +1,87 @@
 package net.zileo.ninja.auth0.utils;
 
-import java.util.Map;
-
-import com.google.common.collect.Maps;
+import java.util.Arrays;
+import java.util.Set;
 
 import net.zileo.ninja.auth0.subject.Subject;
 
 /**
- * Default Subject implementation.
- * 
+ * Default Subject implementation. Instances are immutable, and so can be cached and shared between threads. Claims are
+ * stored in compact arrays following a {@link ClaimLayout} shared by all the Subjects having the same claims ; boolean
+ * and number claims are kept unboxed.
+ *
  * @author jlannoy
  */
 public class Auth0Subject implements Subject {
 
-    private final Map<String, Object> claims = Maps.newHashMap();
+    private final static long[] NO_PRIMITIVES = new long[0];
+
+    private final static Object[] NO_REFERENCES = new Object[0];
 
     private final String id;
 
     private final String email;
 
+    private final ClaimLayout layout;
+
+    private final long[] primitives;
+
+    private final Object[] references;
+
+    /**
+     * Creates a Subject without claims.
+     *
+     * @param id
+     *            user id
+     * @param email
+     *            user email
+     */
     public Auth0Subject(String id, String email) {
         this.id = id;
         this.email = email;
+        this.layout = ClaimLayout.EMPTY;
+        this.primitives = NO_PRIMITIVES;
+        this.references = NO_REFERENCES;
+    }
+
+    /**
+     * Creates a Subject from a builder, for subclasses.
+     *
+     * @param builder
+     *            a Subject builder
+     */
+    protected Auth0Subject(Builder builder) {
+        this.id = builder.id;
+        this.email = builder.email;
+        this.layout = builder.layout();
+        this.primitives = layout.primitives() > 0 ? new long[layout.primitives()] : NO_PRIMITIVES;
+        this.references = layout.references() > 0 ? new Object[layout.references()] : NO_REFERENCES;
+
+        for (int i = 0; i < builder.size; i++) {
+            int slot = layout.slot(i);
+            switch (layout.kind(i)) {
+            case BOOLEAN:
+                primitives[slot] = (Boolean) builder.values[i] ? 1 : 0;
+                break;
+            case LONG:
+            case INTEGER:
+                primitives[slot] = ((Number) builder.values[i]).longValue();
+                break;
+            default:
+                references[slot] = builder.values[i];
+            }
+        }
+    }
+
+    /**
+     * @param id
+     *            user id
+     * @param email
+     *            user email
+     * @return a builder of Subject
+     */
+    public static Builder builder(String id, String email) {
+        return new Builder(id, email);
     }
 
     public String getId() {
@@ -32,23 +92,128 @@ public class Auth0Subject implements Subject {
         return email;
     }
 
-    public void put(String claim, Object value) {
-        claims.put(claim, value);
+    /**
+     * @return names of the claims of this Subject
+     */
+    public Set<String> getClaimNames() {
+        return layout.getNames();
     }
 
     public boolean is(String claim) {
-        if (claims.containsKey(claim)) {
-            if (claims.get(claim) instanceof Boolean) {
-                return (Boolean) claims.get(claim);
-            }
-            if (claims.get(claim) instanceof String) {
-                return Boolean.valueOf((String) claims.get(claim));
+        int position = layout.indexOf(claim);
+        if (position >= 0) {
+            switch (layout.kind(position)) {
+            case BOOLEAN:
+                return primitives[layout.slot(position)] != 0;
+            case OBJECT:
+                Object value = references[layout.slot(position)];
+                return value instanceof String && Boolean.parseBoolean((String) value);
+            default:
+                return false;
             }
         }
         return false;
     }
 
     public Object get(String claim) {
-        return claims.get(claim);
+        int position = layout.indexOf(claim);
+        if (position >= 0) {
+            int slot = layout.slot(position);
+            switch (layout.kind(position)) {
+            case BOOLEAN:
+                return primitives[slot] != 0;
+            case LONG:
+                return primitives[slot];
+            case INTEGER:
+                return (int) primitives[slot];
+            default:
+                return references[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builder of {@link Auth0Subject}. Not thread safe.
+     */
+    public static class Builder {
+
+        private final String id;
+
+        private final String email;
+
+        private String[] names = new String[8];
+
+        private ClaimLayout.Kind[] kinds = new ClaimLayout.Kind[8];
+
+        private Object[] values = new Object[8];
+
+        private int size;
+
+        private ClaimLayout expected;
+
+        protected Builder(String id, String email) {
+            this.id = id;
+            this.email = email;
+        }
+
+        /**
+         * Adds a claim. Boolean, Long and Integer values are stored unboxed.
+         *
+         * @param claim
+         *            claim name
+         * @param value
+         *            claim value (null values are ignored)
+         * @return this builder
+         */
+        public Builder claim(String claim, Object value) {
+
+            if (value == null) {
+                return this;
+            }
+
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                kinds = Arrays.copyOf(kinds, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            names[size] = claim;
+            kinds[size] = ClaimLayout.Kind.of(value);
+            values[size] = value;
+            size++;
+            return this;
+
+        }
+
+        /**
+         * Gives the layout the built Subject will most likely have (the one of the previous Subject built with the same
+         * claims), sparing its lookup.
+         *
+         * @param layout
+         *            expected layout, may be null
+         * @return this builder
+         */
+        public Builder expect(ClaimLayout layout) {
+            this.expected = layout;
+            return this;
+        }
+
+        ClaimLayout layout() {
+
+            if (expected != null && expected.matches(names, kinds, size)) {
+                return expected;
+            }
+            return ClaimLayout.of(Arrays.copyOf(names, size), Arrays.copyOf(kinds, size));
+
+        }
+
+        /**
+         * @return an immutable Subject
+         */
+        public Auth0Subject build() {
+            return new Auth0Subject(this);
+        }
+
     }
 }
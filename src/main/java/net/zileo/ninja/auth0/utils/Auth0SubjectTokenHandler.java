@@ -1,52 +1,153 @@
 package net.zileo.ninja.auth0.utils;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import javax.inject.Named;
 
-import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.google.inject.Inject;
 
 import net.zileo.ninja.auth0.handlers.Auth0EmailHandler;
+import net.zileo.ninja.auth0.jwt.ClaimsProjection;
+import net.zileo.ninja.auth0.jwt.ProjectedJWT;
 import ninja.Context;
 
 public class Auth0SubjectTokenHandler extends Auth0EmailHandler<Auth0Subject> {
 
+    /** Maximum number of detected claim schemas kept ; tokens with other schemas get a plan built on the fly */
+    private final static int MAX_PLANS = 64;
+
     @Inject(optional = true)
     @Named("auth0.claimsNamespace")
     private String claimsNamespace;
 
+    @Inject(optional = true)
+    @Named("auth0.claimsSchema")
+    private String claimsSchema;
+
+    @Inject(optional = true)
+    @Named("auth0.claimsProjection")
+    private boolean projectClaims;
+
+    private ClaimsProjection claimsProjection;
+
+    private ClaimsMappingPlan declaredPlan;
+
+    private final ConcurrentMap<Set<String>, ClaimsMappingPlan> detectedPlans = new ConcurrentHashMap<>();
+
+    /**
+     * Sets the claims namespace (injected by Guice from <code>auth0.claimsNamespace</code>, but can be set manually).
+     * 
+     * @param claimsNamespace
+     *            claims namespace, or null to ignore custom claims
+     */
+    public void setClaimsNamespace(String claimsNamespace) {
+        this.claimsNamespace = claimsNamespace;
+        reset();
+    }
+
+    /**
+     * Sets the declared claims schema (injected by Guice from <code>auth0.claimsSchema</code>, but can be set
+     * manually). See {@link ClaimsMappingPlan#declared(String, String)} for its format.
+     * 
+     * @param claimsSchema
+     *            claims schema, or null to detect claims and their types from the tokens
+     */
+    public void setClaimsSchema(String claimsSchema) {
+        this.claimsSchema = claimsSchema;
+        reset();
+    }
+
+    /**
+     * Enables the claims projection (injected by Guice from <code>auth0.claimsProjection</code>, but can be set
+     * manually) : only the email claims and the namespaced ones are then decoded, see {@link #getClaimsProjection()}.
+     * 
+     * @param projectClaims
+     *            true to only decode the claims read by this handler
+     */
+    public void setProjectClaims(boolean projectClaims) {
+        this.projectClaims = projectClaims;
+        reset();
+    }
+
+    private void reset() {
+        claimsProjection = null;
+        declaredPlan = null;
+        detectedPlans.clear();
+    }
+
+    /**
+     * Only used if <code>auth0.claimsProjection</code> is set, as subclasses may read other claims (<code>name</code>,
+     * <code>picture</code>...) from the token : the email claims, plus the declared namespaced claims if a schema is
+     * configured, else all the namespaced ones.
+     * 
+     * @see net.zileo.ninja.auth0.handlers.Auth0TokenHandler#getClaimsProjection()
+     */
+    @Override
+    public ClaimsProjection getClaimsProjection() {
+        if (!projectClaims) {
+            return super.getClaimsProjection();
+        }
+        if (claimsProjection == null) {
+            if (claimsNamespace == null) {
+                claimsProjection = EMAIL_CLAIMS;
+            } else if (claimsSchema != null) {
+                claimsProjection = EMAIL_CLAIMS.with(getMappingPlan(null).getClaimNames());
+            } else {
+                claimsProjection = EMAIL_CLAIMS.withPrefix(claimsNamespace);
+            }
+        }
+        return claimsProjection;
+    }
+
     @Override
     public Auth0Subject buildSubjectFromEmail(Context context, DecodedJWT jwt, String userId, String email) {
-        Auth0Subject subject = new Auth0Subject(userId, email);
+        Auth0Subject.Builder subject = Auth0Subject.builder(userId, email);
 
         if (claimsNamespace != null) {
             autoExtractClaims(jwt, subject);
         }
 
-        return subject;
+        return subject.build();
     }
 
-    protected void autoExtractClaims(DecodedJWT jwt, Auth0Subject subject) {
+    protected void autoExtractClaims(DecodedJWT jwt, Auth0Subject.Builder subject) {
+
+        getMappingPlan(jwt).apply(jwt, subject);
 
-        for (String key : jwt.getClaims().keySet()) {
+    }
 
-            if (key.startsWith(claimsNamespace)) {
-                Claim claim = jwt.getClaim(key);
+    /**
+     * Returns the plan mapping the namespaced claims of a token : the declared one if a claims schema is configured,
+     * else the one detected for tokens having the same claim names.
+     * 
+     * @param jwt
+     *            a JSON Web Token (only used when no schema is declared)
+     * @return a claims mapping plan
+     */
+    protected ClaimsMappingPlan getMappingPlan(DecodedJWT jwt) {
 
-                if (claim.asBoolean() != null) {
-                    subject.put(key.substring(claimsNamespace.length()), claim.asBoolean());
-                } else if (claim.asLong() != null) {
-                    subject.put(key.substring(claimsNamespace.length()), claim.asLong());
-                } else if (claim.asInt() != null) {
-                    subject.put(key.substring(claimsNamespace.length()), claim.asInt());
-                } else if (claim.asDate() != null) {
-                    subject.put(key.substring(claimsNamespace.length()), claim.asDate());
-                } else if (claim.asString() != null) {
-                    subject.put(key.substring(claimsNamespace.length()), claim.asString());
-                }
+        if (claimsSchema != null) {
+            if (declaredPlan == null) {
+                declaredPlan = ClaimsMappingPlan.declared(claimsNamespace, claimsSchema);
             }
+            return declaredPlan;
+        }
 
+        Set<String> names = jwt instanceof ProjectedJWT ? ((ProjectedJWT) jwt).getClaimNames() : jwt.getClaims().keySet();
+
+        ClaimsMappingPlan plan = detectedPlans.get(names);
+        if (plan == null) {
+            plan = ClaimsMappingPlan.detect(claimsNamespace, jwt.getClaims());
+            if (detectedPlans.size() < MAX_PLANS) {
+                detectedPlans.putIfAbsent(new HashSet<>(names), plan);
+            }
         }
 
+        return plan;
+
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,193 @@
+package net.zileo.ninja.auth0.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Storage layout of the claims of an {@link Auth0Subject} : claim names, their kind and their slot in either the
+ * primitive (booleans, longs and integers) or the reference array of the Subject. Layouts are immutable and interned,
+ * so all the Subjects having the same claims share a single instance.
+ *
+ * @author jlannoy
+ */
+public final class ClaimLayout {
+
+    /**
+     * Storage kind of a claim value.
+     */
+    enum Kind {
+        BOOLEAN, LONG, INTEGER, OBJECT;
+
+        static Kind of(Object value) {
+
+            if (value instanceof Boolean) {
+                return BOOLEAN;
+            } else if (value instanceof Long) {
+                return LONG;
+            } else if (value instanceof Integer) {
+                return INTEGER;
+            }
+            return OBJECT;
+
+        }
+    }
+
+    /** Maximum number of interned layouts ; others are still usable but not shared */
+    private final static int MAX_INTERNED = 256;
+
+    private final static ConcurrentMap<ClaimLayout, ClaimLayout> INTERNED = new ConcurrentHashMap<>();
+
+    static final ClaimLayout EMPTY = new ClaimLayout(new String[0], new Kind[0]);
+
+    private final String[] names;
+
+    private final Kind[] kinds;
+
+    private final int[] slots;
+
+    private final Map<String, Integer> positions;
+
+    private final int primitives;
+
+    private final int references;
+
+    private final int hash;
+
+    private ClaimLayout(String[] names, Kind[] kinds) {
+
+        this.names = names;
+        this.kinds = kinds;
+        this.slots = new int[names.length];
+        this.positions = new HashMap<>(names.length * 2);
+
+        int primitiveCount = 0;
+        int referenceCount = 0;
+        for (int i = 0; i < names.length; i++) {
+            slots[i] = kinds[i] == Kind.OBJECT ? referenceCount++ : primitiveCount++;
+            // Last declaration wins
+            positions.put(names[i], i);
+        }
+
+        this.primitives = primitiveCount;
+        this.references = referenceCount;
+        this.hash = 31 * Arrays.hashCode(names) + Arrays.hashCode(kinds);
+
+    }
+
+    /**
+     * @param names
+     *            claim names (the array is kept, don't modify it afterwards)
+     * @param kinds
+     *            claim kinds (the array is kept, don't modify it afterwards)
+     * @return the shared layout for these claims
+     */
+    static ClaimLayout of(String[] names, Kind[] kinds) {
+
+        if (names.length == 0) {
+            return EMPTY;
+        }
+
+        ClaimLayout layout = new ClaimLayout(names, kinds);
+        ClaimLayout interned = INTERNED.get(layout);
+        if (interned != null) {
+            return interned;
+        }
+
+        if (INTERNED.size() < MAX_INTERNED) {
+            interned = INTERNED.putIfAbsent(layout, layout);
+            return interned != null ? interned : layout;
+        }
+        return layout;
+
+    }
+
+    /**
+     * @param otherNames
+     *            claim names
+     * @param otherKinds
+     *            claim kinds
+     * @param size
+     *            number of claims to compare
+     * @return true if this layout stores exactly these claims
+     */
+    boolean matches(String[] otherNames, Kind[] otherKinds, int size) {
+
+        if (size != names.length) {
+            return false;
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (kinds[i] != otherKinds[i] || !names[i].equals(otherNames[i])) {
+                return false;
+            }
+        }
+        return true;
+
+    }
+
+    /**
+     * @param name
+     *            claim name
+     * @return position of the claim, or -1 if absent
+     */
+    int indexOf(String name) {
+        Integer position = positions.get(name);
+        return position != null ? position : -1;
+    }
+
+    Kind kind(int position) {
+        return kinds[position];
+    }
+
+    int slot(int position) {
+        return slots[position];
+    }
+
+    int primitives() {
+        return primitives;
+    }
+
+    int references() {
+        return references;
+    }
+
+    /**
+     * @return names of the claims stored with this layout
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(positions.keySet());
+    }
+
+    /**
+     * @return number of layouts currently shared
+     */
+    public static int getInternedCount() {
+        return INTERNED.size();
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ClaimLayout)) {
+            return false;
+        }
+
+        ClaimLayout other = (ClaimLayout) obj;
+        return hash == other.hash && Arrays.equals(names, other.names) && Arrays.equals(kinds, other.kinds);
+
+    }
+
+}
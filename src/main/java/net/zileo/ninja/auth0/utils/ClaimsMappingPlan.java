@@ -0,0 +1,248 @@
+package net.zileo.ninja.auth0.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+/**
+ * Precompiled mapping of the namespaced claims of an Id Token to the claims of an {@link Auth0Subject}. A plan is
+ * built once per claim schema (either detected from a first token, or declared in the configuration) and holds, for
+ * each claim, its full name, its name without namespace and its type ; applying it only converts each claim once.
+ * <p>
+ * Plans are immutable and can be shared between threads.
+ *
+ * @author jlannoy
+ */
+public final class ClaimsMappingPlan {
+
+    /**
+     * Supported claim types.
+     */
+    public enum ClaimType {
+
+        BOOLEAN(ClaimLayout.Kind.BOOLEAN) {
+            @Override
+            Object convert(Claim claim) {
+                return claim.asBoolean();
+            }
+        },
+
+        LONG(ClaimLayout.Kind.LONG) {
+            @Override
+            Object convert(Claim claim) {
+                return claim.asLong();
+            }
+        },
+
+        INTEGER(ClaimLayout.Kind.INTEGER) {
+            @Override
+            Object convert(Claim claim) {
+                return claim.asInt();
+            }
+        },
+
+        DATE(ClaimLayout.Kind.OBJECT) {
+            @Override
+            Object convert(Claim claim) {
+                return claim.asDate();
+            }
+        },
+
+        STRING(ClaimLayout.Kind.OBJECT) {
+            @Override
+            Object convert(Claim claim) {
+                return claim.asString();
+            }
+        };
+
+        private final ClaimLayout.Kind kind;
+
+        private ClaimType(ClaimLayout.Kind kind) {
+            this.kind = kind;
+        }
+
+        /**
+         * @param claim
+         *            a claim
+         * @return the claim value, or null if the claim isn't of this type
+         */
+        abstract Object convert(Claim claim);
+
+        /**
+         * Detects the type of a claim value, with the same priority order as the historical probing (booleans, then
+         * numbers, then strings).
+         *
+         * @param claim
+         *            a claim
+         * @return a type, or null if the value can't be mapped (null, arrays, objects)
+         */
+        static ClaimType detect(Claim claim) {
+
+            if (claim.asBoolean() != null) {
+                return BOOLEAN;
+            } else if (claim.asLong() != null) {
+                return LONG;
+            } else if (claim.asString() != null) {
+                return STRING;
+            }
+            return null;
+
+        }
+
+    }
+
+    private final String[] names;
+
+    private final String[] keys;
+
+    private final ClaimType[] types;
+
+    private final boolean declared;
+
+    /** Layout of the Subjects built when all claims are present and match their type */
+    private final ClaimLayout layout;
+
+    private ClaimsMappingPlan(List<String> names, List<String> keys, List<ClaimType> types, boolean declared) {
+        this.names = names.toArray(new String[names.size()]);
+        this.keys = keys.toArray(new String[keys.size()]);
+        this.types = types.toArray(new ClaimType[types.size()]);
+        this.declared = declared;
+        this.layout = expectedLayout(this.keys, this.types);
+    }
+
+    private static ClaimLayout expectedLayout(String[] keys, ClaimType[] types) {
+
+        ClaimLayout.Kind[] kinds = new ClaimLayout.Kind[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == null) {
+                return null;
+            }
+            kinds[i] = types[i].kind;
+        }
+        return ClaimLayout.of(keys.clone(), kinds);
+
+    }
+
+    /**
+     * Builds a plan from the claims of a token, detecting their types.
+     *
+     * @param namespace
+     *            claims namespace
+     * @param claims
+     *            all the claims of a token
+     * @return a plan for tokens sharing the same claim names
+     */
+    public static ClaimsMappingPlan detect(String namespace, Map<String, Claim> claims) {
+
+        List<String> names = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<ClaimType> types = new ArrayList<>();
+
+        for (Map.Entry<String, Claim> entry : claims.entrySet()) {
+            if (entry.getKey().startsWith(namespace)) {
+                names.add(entry.getKey());
+                keys.add(entry.getKey().substring(namespace.length()));
+                types.add(ClaimType.detect(entry.getValue()));
+            }
+        }
+
+        return new ClaimsMappingPlan(names, keys, types, false);
+
+    }
+
+    /**
+     * Builds a plan from a declared schema, a comma separated list of <code>name:type</code> pairs, where type is one of
+     * boolean, long, integer, date or string. Example : <code>admin:boolean, level:long, team:string</code>.
+     *
+     * @param namespace
+     *            claims namespace
+     * @param schema
+     *            declared schema
+     * @throws IllegalArgumentException
+     *             if the schema is malformed
+     * @return a plan only mapping the declared claims
+     */
+    public static ClaimsMappingPlan declared(String namespace, String schema) throws IllegalArgumentException {
+
+        List<String> names = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<ClaimType> types = new ArrayList<>();
+
+        for (String declaration : schema.split(",")) {
+
+            if (declaration.trim().isEmpty()) {
+                continue;
+            }
+
+            int separator = declaration.lastIndexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid claim declaration '" + declaration.trim() + "', expected name:type");
+            }
+
+            String key = declaration.substring(0, separator).trim();
+            String type = declaration.substring(separator + 1).trim().toUpperCase(Locale.ROOT);
+            try {
+                types.add(ClaimType.valueOf(type));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown claim type '" + type + "' for claim " + key, e);
+            }
+            names.add(namespace + key);
+            keys.add(key);
+
+        }
+
+        return new ClaimsMappingPlan(names, keys, types, true);
+
+    }
+
+    /**
+     * @return true if this plan comes from a declared schema
+     */
+    public boolean isDeclared() {
+        return declared;
+    }
+
+    /**
+     * @return full names (with namespace) of the mapped claims
+     */
+    public String[] getClaimNames() {
+        return names.clone();
+    }
+
+    /**
+     * Copies the mapped claims of a token into a Subject builder. With a detected plan, a claim whose value doesn't match the
+     * planned type (or whose type couldn't be detected) is probed again, so the plan never loses a value ; with a
+     * declared plan, such a claim is ignored.
+     *
+     * @param jwt
+     *            a JSON Web Token
+     * @param subject
+     *            Subject builder to populate
+     */
+    public void apply(DecodedJWT jwt, Auth0Subject.Builder subject) {
+
+        subject.expect(layout);
+
+        for (int i = 0; i < names.length; i++) {
+
+            Claim claim = jwt.getClaim(names[i]);
+
+            Object value = types[i] != null ? types[i].convert(claim) : null;
+            if (value == null && !declared) {
+                ClaimType detected = ClaimType.detect(claim);
+                value = detected != null ? detected.convert(claim) : null;
+            }
+
+            if (value != null) {
+                subject.claim(keys[i], value);
+            }
+
+        }
+
+    }
+
+}
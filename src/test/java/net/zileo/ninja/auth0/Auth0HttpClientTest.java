@@ -0,0 +1,61 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import net.zileo.ninja.auth0.client.Auth0HttpClient;
+import net.zileo.ninja.auth0.jwt.UrlJwksSource;
+
+public class Auth0HttpClientTest {
+
+    private HttpServer server;
+
+    private Auth0HttpClient httpClient;
+
+    @Before
+    public void init() throws IOException {
+        // Local JWKS endpoint stand-in
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/.well-known/jwks.json", exchange -> {
+            byte[] body = "{\"keys\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        httpClient = new Auth0HttpClient(5, 5, 5, 60);
+    }
+
+    @After
+    public void stop() {
+        httpClient.stop();
+        server.stop(0);
+    }
+
+    @Test
+    public void testConnectionReuse() throws IOException {
+        UrlJwksSource source = new UrlJwksSource("http://localhost:" + server.getAddress().getPort() + "/.well-known/jwks.json", httpClient.getClient());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("{\"keys\":[]}", source.fetch());
+        }
+
+        assertEquals(3, httpClient.getCalls());
+        assertEquals(0, httpClient.getInFlightCalls());
+        assertEquals(1, httpClient.getConnectionCount());
+        assertEquals(1, httpClient.getIdleConnectionCount());
+    }
+
+}
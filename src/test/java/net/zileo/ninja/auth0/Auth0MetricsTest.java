@@ -0,0 +1,63 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.google.common.collect.Maps;
+
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import net.zileo.ninja.auth0.metrics.DefaultAuth0Metrics;
+import net.zileo.ninja.auth0.metrics.LatencyHistogram;
+import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
+
+public class Auth0MetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, histogram.getPercentile(50), 500 * 0.07);
+        assertEquals(990, histogram.getPercentile(99), 990 * 0.07);
+        assertEquals(1000, (long) histogram.snapshot().get("max"));
+    }
+
+    @Test
+    public void testAuthenticationMetrics() throws IllegalArgumentException, UnsupportedEncodingException {
+        DefaultAuth0Metrics metrics = new DefaultAuth0Metrics();
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        handler.setMetrics(metrics);
+
+        handler.buildSubject(null, handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).sign(Algorithm.HMAC256("secret")));
+        try {
+            handler.buildSubject(null, "not.a.token");
+            fail("Token should have been rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        assertEquals(1, metrics.getCount(Auth0Metrics.AUTHENTICATION_SUCCESS));
+        assertEquals(1, metrics.getCount(Auth0Metrics.AUTHENTICATION_FAILURE + "invalid_token"));
+        assertEquals(2, metrics.getTimer(Auth0Metrics.SUBJECT_BUILD).getCount());
+        assertEquals(1, metrics.getTimer(Auth0Metrics.SUBJECT_HANDLER).getCount());
+
+        metrics.gauge("test.gauge", () -> 42);
+        Map<String, Object> snapshot = metrics.snapshot();
+        assertEquals(42, snapshot.get("test.gauge"));
+        assertNotNull(snapshot.get(Auth0Metrics.SUBJECT_DECODE));
+        assertTrue(snapshot.containsKey(Auth0Metrics.AUTHENTICATION_SUCCESS));
+    }
+
+}
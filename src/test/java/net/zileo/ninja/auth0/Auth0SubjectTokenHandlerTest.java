@@ -1,14 +1,16 @@
 package net.zileo.ninja.auth0;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.UnsupportedEncodingException;
+import java.util.Date;
 
 import org.junit.Before;
 import org.junit.Test;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
@@ -20,12 +22,12 @@ import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
 
 public class Auth0SubjectTokenHandlerTest {
 
-    private final static Logger logger = LoggerFactory.getLogger(Auth0SubjectTokenHandlerTest.class);
-
     private final static String DEFAULT_CLIENT_SECRET = "default-client-secret";
 
     private final static String USER_EMAIL = "test@test.com";
 
+    private final static String NAMESPACE = "https://zileo.net/";
+
     private Auth0SubjectTokenHandler handler;
 
     private Algorithm algorithm;
@@ -40,7 +42,6 @@ public class Auth0SubjectTokenHandlerTest {
     public void testGenerateToken() {
         String idToken = handler.buildSimulatedJWT(null, USER_EMAIL, Maps.newHashMap()).sign(algorithm);
         assertNotNull(idToken);
-        logger.info("JWT = {}", idToken);
 
         DecodedJWT jwt = JWT.decode(idToken);
         assertNotNull(idToken);
@@ -58,4 +59,54 @@ public class Auth0SubjectTokenHandlerTest {
         assertEquals(USER_EMAIL, user.getEmail());
     }
 
+    @Test
+    public void testDetectedClaims() {
+        handler.setClaimsNamespace(NAMESPACE);
+
+        for (int i = 0; i < 2; i++) {
+            Auth0Subject user = handler.buildSubject(null, namespacedToken());
+            assertTrue(user.is("admin"));
+            assertEquals(Long.valueOf(42), user.get("level"));
+            assertEquals("blue", user.get("team"));
+            assertTrue(user.is("beta"));
+        }
+    }
+
+    @Test
+    public void testDeclaredClaims() {
+        handler.setClaimsNamespace(NAMESPACE);
+        handler.setClaimsSchema("admin:boolean, level:integer, beta:boolean");
+        handler.setProjectClaims(true);
+
+        Auth0Subject user = handler.buildSubject(null, namespacedToken());
+        assertTrue(user.is("admin"));
+        assertEquals(Integer.valueOf(42), user.get("level"));
+        assertNull(user.get("team"));
+        assertFalse(user.is("beta"));
+        assertTrue(handler.getClaimsProjection().includes(NAMESPACE + "level"));
+        assertFalse(handler.getClaimsProjection().includes(NAMESPACE + "team"));
+    }
+
+    @Test
+    public void testSubjectClaims() {
+        Date date = new Date();
+        Auth0Subject user = Auth0Subject.builder("id", USER_EMAIL).claim("admin", true).claim("level", 42L).claim("rank", 3).claim("beta", "true")
+                .claim("since", date).claim("none", null).claim("admin", false).build();
+
+        assertFalse(user.is("admin"));
+        assertTrue(user.is("beta"));
+        assertFalse(user.is("level"));
+        assertFalse(user.is("unknown"));
+        assertEquals(Long.valueOf(42), user.get("level"));
+        assertEquals(Integer.valueOf(3), user.get("rank"));
+        assertEquals(date, user.get("since"));
+        assertNull(user.get("none"));
+        assertEquals(5, user.getClaimNames().size());
+    }
+
+    private String namespacedToken() {
+        return handler.buildSimulatedJWT(null, USER_EMAIL, Maps.newHashMap()).withClaim(NAMESPACE + "admin", true).withClaim(NAMESPACE + "level", 42L)
+                .withClaim(NAMESPACE + "team", "blue").withClaim(NAMESPACE + "beta", "true").sign(algorithm);
+    }
+
 }
@@ -0,0 +1,174 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.google.common.collect.Maps;
+
+import net.zileo.ninja.auth0.cache.NegativeCache;
+import net.zileo.ninja.auth0.jwt.Auth0TokenVerifier;
+import net.zileo.ninja.auth0.jwt.JwksKeyProvider;
+import net.zileo.ninja.auth0.jwt.UnknownKeyException;
+import net.zileo.ninja.auth0.subject.AuthenticationResult;
+import net.zileo.ninja.auth0.subject.FailureReason;
+import net.zileo.ninja.auth0.utils.Auth0Subject;
+import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
+
+public class Auth0TokenVerifierTest {
+
+    private final static String ISSUER = "https://zileo-test.eu.auth0.com/";
+
+    private final static String CLIENT_ID = "client-id";
+
+    private final static String KEY_ID = "key-1";
+
+    private final static String USER_EMAIL = "test@test.com";
+
+    private KeyPair keyPair;
+
+    private AtomicInteger fetches;
+
+    private JwksKeyProvider keyProvider;
+
+    private Auth0TokenVerifier verifier;
+
+    @Before
+    public void init() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+
+        // Local JWKS stand-in
+        fetches = new AtomicInteger();
+        keyProvider = new JwksKeyProvider(() -> {
+            fetches.incrementAndGet();
+            return jwks((RSAPublicKey) keyPair.getPublic());
+        }, 3600, 1);
+        keyProvider.start();
+
+        verifier = new Auth0TokenVerifier();
+        verifier.configure(Algorithm.RSA256(keyProvider), ISSUER, CLIENT_ID, 0);
+    }
+
+    @After
+    public void stop() {
+        keyProvider.stop();
+    }
+
+    @Test
+    public void testValidToken() {
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        handler.setTokenVerifier(verifier);
+
+        String idToken = handler.buildSimulatedJWT(null, USER_EMAIL, Maps.newHashMap()).withIssuer(ISSUER).withAudience(CLIENT_ID).withKeyId(KEY_ID)
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60000)).sign(algorithm());
+
+        Auth0Subject subject = handler.buildSubject(null, idToken);
+        assertNotNull(subject);
+        assertEquals(USER_EMAIL, subject.getEmail());
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void testRejectedTokens() {
+        assertRejected(JWT.create().withIssuer(ISSUER).withAudience(CLIENT_ID).withKeyId(KEY_ID).withExpiresAt(new Date(System.currentTimeMillis() - 60000)).sign(algorithm()));
+        assertRejected(JWT.create().withIssuer("https://other.auth0.com/").withAudience(CLIENT_ID).withKeyId(KEY_ID).sign(algorithm()));
+        assertRejected(JWT.create().withIssuer(ISSUER).withAudience("other").withKeyId(KEY_ID).sign(algorithm()));
+        assertRejected("not.a.token");
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void testUnknownKeyRefreshIsRateLimited() throws InterruptedException {
+        String idToken = JWT.create().withIssuer(ISSUER).withAudience(CLIENT_ID).withKeyId("unknown").sign(algorithm());
+
+        // Just loaded : no refetch
+        assertRejected(idToken);
+        Thread.sleep(200);
+        assertEquals(1, fetches.get());
+
+        // Once the minimum interval is elapsed, only one refetch for many unknown key ids
+        Thread.sleep(1000);
+        assertRejected(idToken);
+        assertRejected(idToken);
+        assertRejected(idToken);
+        Thread.sleep(200);
+        assertEquals(2, fetches.get());
+    }
+
+    @Test
+    public void testUnknownKeyNotNegativelyCached() throws NoSuchAlgorithmException {
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        handler.setTokenVerifier(verifier);
+        NegativeCache negativeCache = new NegativeCache(true, 10, 60);
+        handler.setNegativeCache(negativeCache);
+
+        String idToken = JWT.create().withIssuer(ISSUER).withAudience(CLIENT_ID).withKeyId("unknown").withClaim("email", USER_EMAIL).sign(algorithm());
+        try {
+            verifier.verify(idToken);
+            fail("Token should have been rejected");
+        } catch (UnknownKeyException e) {
+            // expected
+        }
+
+        AuthenticationResult<Auth0Subject> result = handler.authenticate(null, idToken);
+        assertEquals(FailureReason.UNKNOWN_KEY, result.getFailure());
+        assertFalse(FailureReason.UNKNOWN_KEY.isCacheable());
+        assertEquals(0, negativeCache.size());
+
+        // A bad signature with a known key will always fail
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair other = generator.generateKeyPair();
+        String forged = JWT.create().withIssuer(ISSUER).withAudience(CLIENT_ID).withKeyId(KEY_ID)
+                .sign(Algorithm.RSA256((RSAPublicKey) other.getPublic(), (RSAPrivateKey) other.getPrivate()));
+        assertEquals(FailureReason.INVALID_TOKEN, handler.authenticate(null, forged).getFailure());
+        assertEquals(1, negativeCache.size());
+    }
+
+    private void assertRejected(String idToken) {
+        try {
+            verifier.verify(idToken);
+            fail("Token should have been rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private Algorithm algorithm() {
+        return Algorithm.RSA256((RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate());
+    }
+
+    private static String jwks(RSAPublicKey key) {
+        return "{\"keys\":[{\"kty\":\"RSA\",\"use\":\"sig\",\"kid\":\"" + KEY_ID + "\",\"n\":\"" + base64(key.getModulus()) + "\",\"e\":\"" + base64(key.getPublicExponent())
+                + "\"}]}";
+    }
+
+    private static String base64(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+}
@@ -0,0 +1,83 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.google.common.collect.Maps;
+
+import net.zileo.ninja.auth0.jwt.TokenChecks;
+import net.zileo.ninja.auth0.jwt.TokenPipeline;
+import net.zileo.ninja.auth0.metrics.DefaultAuth0Metrics;
+import net.zileo.ninja.auth0.subject.AuthenticationResult;
+import net.zileo.ninja.auth0.subject.FailureReason;
+import net.zileo.ninja.auth0.utils.Auth0Subject;
+import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
+
+public class AuthenticationResultTest {
+
+    @Test
+    public void testPreallocatedFailures() {
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        DefaultAuth0Metrics metrics = new DefaultAuth0Metrics();
+        handler.setMetrics(metrics);
+
+        AuthenticationResult<Auth0Subject> result = handler.authenticate(null, null);
+
+        assertFalse(result.isSuccess());
+        assertEquals(FailureReason.NO_TOKEN, result.getFailure());
+        assertSame(result, handler.authenticate(null, null));
+        assertEquals(2, metrics.getCount(FailureReason.NO_TOKEN.getMetricName()));
+    }
+
+    @Test
+    public void testPipelineRejection() throws IllegalArgumentException, UnsupportedEncodingException {
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        TokenPipeline pipeline = new TokenPipeline();
+        pipeline.configure(Collections.singletonList(TokenChecks.time(0)));
+        handler.setTokenPipeline(pipeline);
+
+        String expired = JWT.create().withSubject("user").withExpiresAt(new Date(System.currentTimeMillis() - 60000)).sign(Algorithm.HMAC256("secret"));
+
+        assertSame(AuthenticationResult.failure(FailureReason.EXPIRED), handler.authenticate(null, expired));
+    }
+
+    @Test
+    public void testHandlerRejectionKeepsMessage() throws IllegalArgumentException, UnsupportedEncodingException {
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        String unverified = JWT.create().withSubject("user").withClaim("email", "test@test.com").withClaim("email_verified", false).sign(Algorithm.HMAC256("secret"));
+
+        AuthenticationResult<Auth0Subject> result = handler.authenticate(null, unverified);
+
+        assertEquals(FailureReason.REJECTED, result.getFailure());
+        assertEquals("E-mail adress not (yet) verified", result.getMessage());
+        try {
+            handler.buildSubject(null, unverified);
+            throw new AssertionError("Unverified email accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("E-mail adress not (yet) verified", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSuccess() throws IllegalArgumentException, UnsupportedEncodingException {
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        String idToken = handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).sign(Algorithm.HMAC256("secret"));
+
+        AuthenticationResult<Auth0Subject> result = handler.authenticate(null, idToken);
+
+        assertTrue(result.isSuccess());
+        assertEquals("test@test.com", result.getSubject().getEmail());
+        assertSame(result.getSubject(), result.orThrow());
+    }
+
+}
@@ -0,0 +1,113 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.google.common.collect.Maps;
+
+import net.zileo.ninja.auth0.handlers.Auth0BatchEmailHandler;
+import net.zileo.ninja.auth0.handlers.BatchLoader;
+import net.zileo.ninja.auth0.handlers.UserKey;
+import net.zileo.ninja.auth0.utils.Auth0Subject;
+
+public class BatchLoaderTest {
+
+    @Test
+    public void testConcurrentLookupsBatched() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        BatchLoader<String, String> loader = new BatchLoader<>(keys -> {
+            calls.incrementAndGet();
+            Map<String, String> values = new HashMap<>();
+            keys.forEach(key -> values.put(key, key.toUpperCase()));
+            return values;
+        }, 200, 16, 5);
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                String key = "user" + (i % 4);
+                results.add(executor.submit(() -> loader.load(key)));
+            }
+            for (int i = 0; i < 16; i++) {
+                assertEquals("USER" + (i % 4), results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(16, loader.getLookups());
+        assertEquals(calls.get(), loader.getBatches());
+        assertTrue(loader.getBatches() < 16);
+        assertTrue(loader.getLoadedKeys() < 16);
+    }
+
+    @Test
+    public void testBatchSizeLimit() throws Exception {
+        List<Integer> sizes = new ArrayList<>();
+        BatchLoader<Integer, Integer> loader = new BatchLoader<>(keys -> {
+            synchronized (sizes) {
+                sizes.add(keys.size());
+            }
+            return new HashMap<>();
+        }, 100, 2, 5);
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                int key = i;
+                results.add(executor.submit(() -> loader.load(key)));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(null, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int size : sizes) {
+            assertTrue(size <= 2);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLoaderFailureShared() {
+        new BatchLoader<String, String>(keys -> {
+            throw new IllegalStateException("Database down");
+        }, 0, 10, 5).load("user");
+    }
+
+    @Test
+    public void testBatchEmailHandler() throws IllegalArgumentException, UnsupportedEncodingException {
+        Auth0BatchEmailHandler<Auth0Subject> handler = new Auth0BatchEmailHandler<Auth0Subject>() {
+            @Override
+            public Map<UserKey, Auth0Subject> loadSubjects(List<UserKey> keys) {
+                Map<UserKey, Auth0Subject> subjects = new HashMap<>();
+                keys.forEach(key -> subjects.put(key, new Auth0Subject(key.getUserId(), key.getEmail())));
+                return subjects;
+            }
+        };
+        handler.configureBatch(0, 10, 5);
+
+        String idToken = handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).sign(Algorithm.HMAC256("secret"));
+        Auth0Subject subject = handler.buildSubject(null, idToken);
+
+        assertEquals("test@test.com", subject.getEmail());
+        assertEquals(1, handler.getBatchLoader().getBatches());
+    }
+
+}
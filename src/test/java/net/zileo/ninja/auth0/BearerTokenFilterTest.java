@@ -0,0 +1,124 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.google.common.collect.Maps;
+
+import net.zileo.ninja.auth0.cache.SubjectCache;
+import net.zileo.ninja.auth0.filters.AuthenticateFilter;
+import net.zileo.ninja.auth0.filters.BearerTokenFilter;
+import net.zileo.ninja.auth0.jwt.Auth0TokenVerifier;
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import net.zileo.ninja.auth0.subject.SubjectExtractor;
+import net.zileo.ninja.auth0.utils.Auth0Subject;
+import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
+import ninja.Context;
+import ninja.FilterChain;
+import ninja.Result;
+import ninja.Results;
+
+public class BearerTokenFilterTest {
+
+    private final static String ISSUER = "https://zileo-test.eu.auth0.com/";
+
+    private final static String CLIENT_ID = "client-id";
+
+    private final static String API = "https://api.zileo.net";
+
+    private final static Result OK = Results.ok();
+
+    private final FilterChain chain = context -> OK;
+
+    private Auth0SubjectTokenHandler handler;
+
+    private BearerTokenFilter filter;
+
+    private String idToken;
+
+    @Before
+    public void init() throws IllegalArgumentException, UnsupportedEncodingException {
+        Auth0TokenVerifier verifier = new Auth0TokenVerifier();
+        verifier.configure(Algorithm.HMAC256("secret"), ISSUER, CLIENT_ID, API, 0);
+
+        handler = new Auth0SubjectTokenHandler();
+        handler.setTokenVerifier(verifier);
+        filter = new BearerTokenFilter(handler, verifier, Auth0Metrics.NOOP);
+        idToken = token(API);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testVerificationRequired() {
+        new BearerTokenFilter(handler, new Auth0TokenVerifier(), Auth0Metrics.NOOP);
+    }
+
+    @Test
+    public void testAuthenticated() {
+        Context context = context("Bearer " + idToken);
+
+        assertSame(OK, filter.filter(chain, context));
+        Auth0Subject subject = AuthenticateFilter.get(context, Auth0Subject.class);
+        assertEquals("test@test.com", subject.getEmail());
+        assertSame(subject, new SubjectExtractor(handler).extract(context));
+    }
+
+    @Test
+    public void testCaseInsensitiveScheme() {
+        assertSame(OK, filter.filter(chain, context("bearer " + idToken)));
+    }
+
+    @Test
+    public void testMissingToken() {
+        assertUnauthorized(filter.filter(chain, context(null)), "Bearer");
+        assertUnauthorized(filter.filter(chain, context("Bearer ")), "Bearer");
+        assertUnauthorized(filter.filter(chain, context("Basic dXNlcjpwYXNz")), "Bearer");
+    }
+
+    @Test
+    public void testInvalidToken() {
+        Context context = context("Bearer not.a.token");
+
+        assertUnauthorized(filter.filter(chain, context), "Bearer error=\"invalid_token\"");
+        assertNull(context.getAttribute(AuthenticateFilter.SUBJECT_CTX_KEY));
+    }
+
+    @Test
+    public void testAudience() throws UnsupportedEncodingException {
+        handler.setSubjectCache(new SubjectCache(true, 10, 60));
+
+        // Id Token of the client, valid (and cached) in session but not as a bearer token
+        String clientToken = token(CLIENT_ID);
+        assertEquals("test@test.com", handler.authenticate(null, clientToken).getSubject().getEmail());
+        assertEquals("test@test.com", handler.authenticate(null, clientToken).getSubject().getEmail());
+        assertUnauthorized(filter.filter(chain, context("Bearer " + clientToken)), "Bearer error=\"invalid_token\"");
+
+        // And the other way round, despite the cached bearer Subject
+        assertSame(OK, filter.filter(chain, context("Bearer " + idToken)));
+        assertNull(handler.authenticate(null, idToken).getSubject());
+    }
+
+    private String token(String audience) throws UnsupportedEncodingException {
+        return handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).withIssuer(ISSUER).withAudience(audience).sign(Algorithm.HMAC256("secret"));
+    }
+
+    private static void assertUnauthorized(Result result, String challenge) {
+        assertEquals(Result.SC_401_UNAUTHORIZED, result.getStatusCode());
+        assertEquals(challenge, result.getHeaders().get(BearerTokenFilter.AUTHENTICATE_HEADER));
+    }
+
+    /**
+     * Context without session : any access to it fails the test.
+     */
+    private static Context context(String authorization) {
+        return Fakes.context(null, "/api", Collections.singletonMap(BearerTokenFilter.AUTHORIZATION_HEADER, authorization));
+    }
+
+}
@@ -0,0 +1,122 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.exception.APIException;
+import com.auth0.exception.Auth0Exception;
+import com.auth0.json.auth.TokenHolder;
+
+import net.zileo.ninja.auth0.client.CircuitBreaker;
+import net.zileo.ninja.auth0.client.CodeExchanger;
+
+public class CodeExchangerTest {
+
+    private AtomicInteger calls;
+
+    private volatile Auth0Exception failure;
+
+    private CountDownLatch release;
+
+    private CodeExchanger exchanger;
+
+    @Before
+    public void init() {
+        calls = new AtomicInteger();
+        release = new CountDownLatch(0);
+
+        // Auth0 stand-in
+        exchanger = new CodeExchanger() {
+            @Override
+            protected TokenHolder execute(String code, String redirectUri) throws Auth0Exception {
+                calls.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new Auth0Exception("Interrupted", e);
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                return new TokenHolder();
+            }
+        };
+        exchanger.configure(1, 1, 1, new CircuitBreaker(2, 60));
+    }
+
+    @After
+    public void stop() {
+        release.countDown();
+        exchanger.stop();
+    }
+
+    @Test
+    public void testExchange() throws Auth0Exception {
+        assertNotNull(exchanger.exchange("code", "http://localhost/callback"));
+        assertEquals(1, exchanger.getExchanges());
+        assertEquals(0, exchanger.getFailures());
+    }
+
+    @Test
+    public void testSaturatedPoolAndTimeout() throws InterruptedException {
+        release = new CountDownLatch(1);
+
+        // One exchange running, one queued, the third one is refused
+        Thread first = new Thread(() -> assertFailure());
+        Thread second = new Thread(() -> assertFailure());
+        first.start();
+        Thread.sleep(100);
+        second.start();
+        Thread.sleep(100);
+        assertEquals(1, exchanger.getQueueDepth());
+        assertFailure();
+        assertEquals(1, exchanger.getRejections());
+
+        first.join();
+        second.join();
+        assertEquals(2, exchanger.getTimeouts());
+    }
+
+    @Test
+    public void testCircuitBreaker() {
+        failure = new Auth0Exception("Network error");
+        assertFailure();
+        assertFailure();
+        assertTrue(exchanger.isCircuitOpen());
+
+        // Refused without calling Auth0
+        assertFailure();
+        assertEquals(2, calls.get());
+        assertEquals(1, exchanger.getRejections());
+    }
+
+    @Test
+    public void testClientErrorsDontOpenCircuit() {
+        failure = new APIException("invalid_grant", 403, null);
+        assertFailure();
+        assertFailure();
+        assertFailure();
+        assertFalse(exchanger.isCircuitOpen());
+        assertEquals(3, calls.get());
+    }
+
+    private void assertFailure() {
+        try {
+            exchanger.exchange("code", "http://localhost/callback");
+            fail("Exchange should have failed");
+        } catch (Auth0Exception e) {
+            // expected
+        }
+    }
+
+}
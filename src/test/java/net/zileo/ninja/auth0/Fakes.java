@@ -0,0 +1,153 @@
+package net.zileo.ninja.auth0;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import ninja.Context;
+import ninja.session.Session;
+import ninja.utils.NinjaProperties;
+
+/**
+ * Minimal Ninja's session, context and properties stand-ins, shared by the unit tests : only the methods used by this module are
+ * implemented, the others returning null.
+ *
+ * @author jlannoy
+ */
+final class Fakes {
+
+    private Fakes() {}
+
+    /**
+     * @param data
+     *            session content, read and written by the returned session
+     * @return a session backed by the given map
+     */
+    static Session session(Map<String, String> data) {
+
+        return (Session) Proxy.newProxyInstance(Fakes.class.getClassLoader(), new Class<?>[] {
+                Session.class
+        }, (proxy, method, args) -> {
+            switch (method.getName()) {
+            case "get":
+                return data.get(args[0]);
+            case "put":
+                return data.put((String) args[0], (String) args[1]);
+            case "remove":
+                return data.remove(args[0]);
+            default:
+                return null;
+            }
+        });
+
+    }
+
+    /**
+     * @param session
+     *            session of the request
+     * @return a context holding the given session and its own attributes
+     */
+    static Context context(Session session) {
+
+        return context(session, "/", Collections.emptyMap());
+
+    }
+
+    /**
+     * @param session
+     *            session of the request, or null if it must not be accessed (failing the test otherwise)
+     * @param path
+     *            request path
+     * @param headers
+     *            request headers
+     * @return a context holding the given session and its own attributes
+     */
+    static Context context(Session session, String path, Map<String, String> headers) {
+
+        return context(session, "http", "localhost", path, headers, Collections.emptyMap());
+
+    }
+
+    /**
+     * @param scheme
+     *            request scheme
+     * @param host
+     *            request host name
+     * @param parameters
+     *            request parameters
+     * @return a context without session, holding its own attributes
+     */
+    static Context request(String scheme, String host, Map<String, String> parameters) {
+
+        return context(null, scheme, host, "/", Collections.emptyMap(), parameters);
+
+    }
+
+    private static Context context(Session session, String scheme, String host, String path, Map<String, String> headers, Map<String, String> parameters) {
+
+        Map<String, Object> attributes = new HashMap<>();
+
+        return (Context) Proxy.newProxyInstance(Fakes.class.getClassLoader(), new Class<?>[] {
+                Context.class
+        }, (proxy, method, args) -> {
+            switch (method.getName()) {
+            case "getSession":
+                if (session == null) {
+                    throw new AssertionError("Session should not be accessed");
+                }
+                return session;
+            case "getRequestPath":
+                return path;
+            case "getScheme":
+                return scheme;
+            case "getHostname":
+                return host;
+            case "getHeader":
+                return headers.get(args[0]);
+            case "getParameter":
+                return parameters.get(args[0]);
+            case "getAttribute":
+                return args.length == 1 ? attributes.get(args[0]) : ((Class<?>) args[1]).cast(attributes.get(args[0]));
+            case "setAttribute":
+                attributes.put((String) args[0], args[1]);
+                return null;
+            default:
+                return null;
+            }
+        });
+
+    }
+
+    /**
+     * @param values
+     *            configured properties, the other ones taking their default value
+     * @return test mode properties backed by the given map
+     */
+    static NinjaProperties properties(Map<String, String> values) {
+
+        return (NinjaProperties) Proxy.newProxyInstance(Fakes.class.getClassLoader(), new Class<?>[] {
+                NinjaProperties.class
+        }, (proxy, method, args) -> {
+            String value = args != null && args.length > 0 ? values.get(args[0]) : null;
+            switch (method.getName()) {
+            case "get":
+                return value;
+            case "getWithDefault":
+                return value != null ? value : args[1];
+            case "getBooleanWithDefault":
+                return value != null ? Boolean.valueOf(value) : args[1];
+            case "getIntegerWithDefault":
+                return value != null ? Integer.valueOf(value) : args[1];
+            case "getStringArray":
+                return value != null ? value.split(",") : null;
+            case "isProd":
+                return false;
+            default:
+                return null;
+            }
+        });
+
+    }
+
+}
@@ -0,0 +1,156 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.exception.Auth0Exception;
+import com.auth0.json.auth.TokenHolder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.zileo.ninja.auth0.client.MachineTokenProvider;
+
+public class MachineTokenProviderTest {
+
+    private AtomicInteger calls;
+
+    private CountDownLatch release;
+
+    private volatile long expiresIn;
+
+    private volatile Auth0Exception failure;
+
+    private MachineTokenProvider provider;
+
+    @Before
+    public void init() {
+        calls = new AtomicInteger();
+        release = new CountDownLatch(0);
+        expiresIn = 86400;
+
+        // Auth0 stand-in
+        provider = new MachineTokenProvider() {
+            @Override
+            protected TokenHolder execute(String audience) throws Auth0Exception {
+                int call = calls.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new Auth0Exception("Interrupted", e);
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                return tokens(audience + "-" + call, expiresIn);
+            }
+        };
+        provider.configure(1, 5);
+    }
+
+    @After
+    public void stop() {
+        release.countDown();
+        provider.stop();
+    }
+
+    @Test
+    public void testCachedPerAudience() throws Auth0Exception {
+        assertEquals("https://api-1-1", provider.getAccessToken("https://api-1"));
+        assertEquals("https://api-1-1", provider.getAccessToken("https://api-1"));
+        assertEquals("https://api-2-2", provider.getAccessToken("https://api-2"));
+
+        assertEquals(2, provider.getFetches());
+        assertTrue(provider.getRemainingLifetime("https://api-1") > 86000);
+        assertEquals(0, provider.getRemainingLifetime("https://api-3"));
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> provider.getAccessToken("https://api")));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> future : futures) {
+                assertEquals("https://api-1", future.get());
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        expiresIn = 2;
+        String first = provider.getAccessToken("https://api");
+
+        // Renewed in the background one second before its expiry
+        long end = System.currentTimeMillis() + 5000;
+        while (calls.get() < 2 && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(50);
+
+        assertEquals(2, calls.get());
+        assertNotEquals(first, provider.getAccessToken("https://api"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testShortLivedNotRenewedAtOnce() throws Exception {
+        provider.configure(60, 5);
+        expiresIn = 2;
+        provider.getAccessToken("https://api");
+
+        // Renewed at half of its lifetime, not right away
+        Thread.sleep(500);
+        assertEquals(1, calls.get());
+
+        long end = System.currentTimeMillis() + 5000;
+        while (calls.get() < 2 && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testFailure() {
+        failure = new Auth0Exception("Network error");
+        try {
+            provider.getAccessToken("https://api");
+            fail("No token should be provided");
+        } catch (Auth0Exception e) {
+            assertEquals("Network error", e.getMessage());
+        }
+        assertEquals(1, provider.getFailures());
+    }
+
+    private static TokenHolder tokens(String accessToken, long expiresIn) {
+        try {
+            return new ObjectMapper().readValue("{\"access_token\":\"" + accessToken + "\",\"expires_in\":" + expiresIn + "}", TokenHolder.class);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import net.zileo.ninja.auth0.filters.NavigationClassifier;
+import ninja.Context;
+import ninja.Result;
+
+public class NavigationClassifierTest {
+
+    private static final String HTML = "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8";
+
+    private final NavigationClassifier classifier = new NavigationClassifier();
+
+    @Test
+    public void testNavigations() {
+        assertTrue(classifier.isNavigation(context("/admin", "Accept", HTML)));
+        assertTrue(classifier.isNavigation(context("/admin", "Accept", HTML, "Sec-Fetch-Mode", "navigate")));
+        assertTrue(classifier.isNavigation(context("/admin")));
+    }
+
+    @Test
+    public void testOtherRequests() {
+        assertFalse(classifier.isNavigation(context("/admin", "Accept", HTML, "X-Requested-With", "XMLHttpRequest")));
+        assertFalse(classifier.isNavigation(context("/admin", "Accept", "application/json")));
+        assertFalse(classifier.isNavigation(context("/admin", "Accept", "*/*", "Sec-Fetch-Mode", "cors")));
+        assertFalse(classifier.isNavigation(context("/admin/users.json", "Accept", HTML)));
+        assertFalse(classifier.isNavigation(context("/assets/logo.png")));
+        assertFalse(classifier.isNavigation(context("/assets/fonts/icons.woff2")));
+    }
+
+    @Test
+    public void testUnauthorized() {
+        Result unauthorized = NavigationClassifier.unauthorized();
+        assertEquals(Result.SC_401_UNAUTHORIZED, unauthorized.getStatusCode());
+        assertTrue(unauthorized.getCookies().isEmpty());
+
+        // Not shared between requests
+        unauthorized.addHeader("Cache-Control", "no-cache");
+        assertNotSame(unauthorized, NavigationClassifier.unauthorized());
+        assertTrue(NavigationClassifier.unauthorized().getHeaders().isEmpty());
+    }
+
+    private static Context context(String path, String... headers) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < headers.length; i += 2) {
+            values.put(headers[i], headers[i + 1]);
+        }
+        return Fakes.context(null, path, values);
+    }
+
+}
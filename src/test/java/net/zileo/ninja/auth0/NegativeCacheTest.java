@@ -0,0 +1,103 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.common.collect.Maps;
+
+import net.zileo.ninja.auth0.cache.NegativeCache;
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import net.zileo.ninja.auth0.metrics.DefaultAuth0Metrics;
+import net.zileo.ninja.auth0.subject.AuthenticationResult;
+import net.zileo.ninja.auth0.subject.FailureReason;
+import net.zileo.ninja.auth0.utils.Auth0Subject;
+import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
+import ninja.Context;
+
+public class NegativeCacheTest {
+
+    private AtomicInteger lookups;
+
+    private Auth0SubjectTokenHandler handler;
+
+    private DefaultAuth0Metrics metrics;
+
+    private String idToken;
+
+    @Before
+    public void init() throws IllegalArgumentException, UnsupportedEncodingException {
+        lookups = new AtomicInteger();
+
+        // Unknown user stand-in
+        handler = new Auth0SubjectTokenHandler() {
+            @Override
+            public Auth0Subject buildSubjectFromEmail(Context context, DecodedJWT jwt, String userId, String email) {
+                lookups.incrementAndGet();
+                throw new IllegalArgumentException("Unknown user");
+            }
+        };
+        metrics = new DefaultAuth0Metrics();
+        handler.setMetrics(metrics);
+
+        idToken = handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).sign(Algorithm.HMAC256("secret"));
+    }
+
+    @Test
+    public void testRepeatedRejection() {
+        NegativeCache negativeCache = new NegativeCache(true, 10, 60);
+        handler.setNegativeCache(negativeCache);
+
+        AuthenticationResult<Auth0Subject> first = handler.authenticate(null, idToken);
+        AuthenticationResult<Auth0Subject> second = handler.authenticate(null, idToken);
+
+        assertEquals(FailureReason.REJECTED, first.getFailure());
+        assertSame(first, second);
+        assertEquals("Unknown user", second.getMessage());
+        assertEquals(1, lookups.get());
+        assertEquals(1, negativeCache.getHits());
+        assertEquals(1, metrics.getCount(Auth0Metrics.AUTHENTICATION_NEGATIVE_HIT));
+        assertEquals(2, metrics.getCount(FailureReason.REJECTED.getMetricName()));
+    }
+
+    @Test
+    public void testMalformedTokenCached() {
+        NegativeCache negativeCache = new NegativeCache(true, 10, 60);
+        handler.setNegativeCache(negativeCache);
+
+        handler.authenticate(null, "not.a.token");
+
+        assertEquals(FailureReason.INVALID_TOKEN, handler.authenticate(null, "not.a.token").getFailure());
+        assertEquals(1, negativeCache.getHits());
+    }
+
+    @Test
+    public void testSizeBound() {
+        NegativeCache negativeCache = new NegativeCache(true, 2, 60);
+
+        for (int i = 0; i < 5; i++) {
+            negativeCache.put("token" + i, AuthenticationResult.failure(FailureReason.INVALID_TOKEN));
+        }
+
+        assertTrue(negativeCache.size() <= 2);
+    }
+
+    @Test
+    public void testDisabled() {
+        handler.setNegativeCache(new NegativeCache(false, 10, 60));
+
+        handler.authenticate(null, idToken);
+        handler.authenticate(null, idToken);
+
+        assertEquals(2, lookups.get());
+    }
+
+}
@@ -0,0 +1,88 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+
+import net.zileo.ninja.auth0.jwt.PooledHmacAlgorithm;
+
+public class PooledHmacAlgorithmTest {
+
+    private final static String SECRET = "secret";
+
+    @Test
+    public void testSameSignatures() throws UnsupportedEncodingException {
+        String pooled = JWT.create().withSubject("auth0|123").withClaim("email", "test@test.com").sign(PooledHmacAlgorithm.HS256(SECRET));
+        String standard = JWT.create().withSubject("auth0|123").withClaim("email", "test@test.com").sign(Algorithm.HMAC256(SECRET));
+
+        assertEquals(standard, pooled);
+        assertEquals("auth0|123", JWT.require(Algorithm.HMAC256(SECRET)).build().verify(pooled).getSubject());
+        assertEquals("auth0|123", JWT.require(PooledHmacAlgorithm.HS256(SECRET)).build().verify(standard).getSubject());
+    }
+
+    @Test
+    public void testRejectedSignatures() {
+        String idToken = JWT.create().withSubject("auth0|123").sign(PooledHmacAlgorithm.HS256(SECRET));
+        PooledHmacAlgorithm algorithm = PooledHmacAlgorithm.HS256(SECRET);
+
+        rejected(algorithm, JWT.create().withSubject("auth0|123").sign(PooledHmacAlgorithm.HS256("other")));
+        rejected(algorithm, idToken.substring(0, idToken.length() - 1) + (idToken.endsWith("A") ? "B" : "A"));
+        rejected(algorithm, idToken.substring(0, idToken.length() - 2));
+        rejected(algorithm, idToken + "AA");
+    }
+
+    @Test
+    public void testThreads() throws Exception {
+        PooledHmacAlgorithm algorithm = PooledHmacAlgorithm.HS256(SECRET);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        // Growing tokens, to exercise the per-thread buffer
+                        StringBuilder value = new StringBuilder();
+                        for (int k = 0; k < j * 10; k++) {
+                            value.append((char) ('a' + k % 26));
+                        }
+                        String idToken = JWT.create().withSubject("auth0|" + thread).withClaim("value", value.toString()).sign(algorithm);
+                        assertEquals("auth0|" + thread, JWT.require(algorithm).build().verify(idToken).getSubject());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullSecret() {
+        PooledHmacAlgorithm.HS256(null);
+    }
+
+    private static void rejected(Algorithm algorithm, String idToken) {
+        try {
+            JWT.require(algorithm).build().verify(idToken);
+            fail("Signature should not be valid");
+        } catch (SignatureVerificationException e) {
+            // Expected
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import net.zileo.ninja.auth0.handlers.Auth0EmailHandler;
+import net.zileo.ninja.auth0.jwt.Auth0TokenVerifier;
+import net.zileo.ninja.auth0.jwt.ProjectedJWT;
+
+public class ProjectedJWTTest {
+
+    private final static String NAMESPACE = "https://zileo.net/";
+
+    private String idToken;
+
+    @Before
+    public void init() throws IllegalArgumentException, UnsupportedEncodingException {
+        idToken = JWT.create().withKeyId("key-1").withSubject("auth0|123").withAudience("a", "b").withExpiresAt(new Date(1600000000000L))
+                .withClaim("email", "test@test.com").withClaim("email_verified", true).withClaim("name", "Test")
+                .withArrayClaim("roles", new String[] {
+                        "admin", "user"
+                }).withClaim(NAMESPACE + "admin", true).withClaim(NAMESPACE + "level", 42L).sign(Algorithm.HMAC256("secret"));
+    }
+
+    @Test
+    public void testProjectedClaims() {
+        DecodedJWT full = JWT.decode(idToken);
+        DecodedJWT projected = ProjectedJWT.decode(idToken, Auth0EmailHandler.EMAIL_CLAIMS.withPrefix(NAMESPACE));
+
+        assertEquals(full.getSubject(), projected.getSubject());
+        assertEquals(full.getExpiresAt(), projected.getExpiresAt());
+        assertEquals(full.getClaim("email").asString(), projected.getClaim("email").asString());
+        assertEquals(full.getClaim("email_verified").asBoolean(), projected.getClaim("email_verified").asBoolean());
+        assertEquals(Boolean.TRUE, projected.getClaim(NAMESPACE + "admin").asBoolean());
+        assertEquals(Long.valueOf(42), projected.getClaim(NAMESPACE + "level").asLong());
+        assertEquals(6, projected.getClaims().size());
+    }
+
+    @Test
+    public void testSkippedClaims() {
+        DecodedJWT projected = ProjectedJWT.decode(idToken, Auth0EmailHandler.EMAIL_CLAIMS);
+
+        assertTrue(projected.getClaim("name").isNull());
+        assertNull(projected.getClaim("name").asString());
+        assertFalse(projected.getClaims().containsKey("roles"));
+        assertNull(projected.getAudience());
+    }
+
+    @Test
+    public void testStructuredClaimsAndHeader() {
+        DecodedJWT projected = ProjectedJWT.decode(idToken, Auth0EmailHandler.EMAIL_CLAIMS.withPrefix("roles").withPrefix("aud"));
+
+        assertEquals(Arrays.asList("admin", "user"), projected.getClaim("roles").asList(String.class));
+        assertEquals(Arrays.asList("a", "b"), projected.getAudience());
+        assertEquals("HS256", projected.getAlgorithm());
+        assertEquals("key-1", projected.getKeyId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedToken() {
+        Auth0TokenVerifier.decode("abc.def", Auth0EmailHandler.EMAIL_CLAIMS);
+    }
+
+}
@@ -0,0 +1,119 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.client.auth.AuthAPI;
+
+import net.zileo.ninja.auth0.controllers.Auth0Controller;
+import net.zileo.ninja.auth0.controllers.RedirectUrls;
+import net.zileo.ninja.auth0.filters.LoginRoute;
+import ninja.Context;
+import ninja.ControllerMethods.ControllerMethod;
+import ninja.ReverseRouter;
+import ninja.Route;
+import ninja.session.Session;
+
+public class RedirectUrlsTest {
+
+    private int routings;
+
+    private ReverseRouter reverseRouter;
+
+    private RedirectUrls redirectUrls;
+
+    @Before
+    public void init() {
+        routings = 0;
+
+        // Ninja's router stand-in, counting reverse routings
+        reverseRouter = new ReverseRouter(null, null) {
+            @Override
+            public Builder with(ControllerMethod controllerMethod) {
+                routings++;
+                try {
+                    return new Builder("", new Route("GET", "/auth0/route" + routings, Auth0Controller.class.getMethod("login", Context.class, Session.class), null));
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+        redirectUrls = new RedirectUrls();
+        redirectUrls.setAuth(new AuthAPI("zileo-test.eu.auth0.com", "client-id", "client-secret"));
+        redirectUrls.configure(reverseRouter, "openid email", false, "login_hint", "ui_locales");
+    }
+
+    @Test
+    public void testCachedPerOrigin() {
+        RedirectUrls.Origin origin = redirectUrls.of(Fakes.request("http", "zileo.net", Collections.emptyMap()));
+        assertEquals("http://zileo.net/auth0/route1", origin.getCallbackUrl());
+        assertEquals("http://zileo.net/auth0/route2", origin.getLoggedOutUrl());
+        assertTrue(origin.getAuthorizeUrl().startsWith("https://zileo-test.eu.auth0.com/authorize?"));
+        assertTrue(origin.getAuthorizeUrl().contains("redirect_uri=http://zileo.net/auth0/route1"));
+        assertTrue(origin.getLogoutUrl().contains("returnTo=http://zileo.net/auth0/route2"));
+
+        // Built once per scheme and host
+        assertSame(origin, redirectUrls.of(Fakes.request("http", "zileo.net", Collections.emptyMap())));
+        assertEquals(2, routings);
+        assertNotSame(origin, redirectUrls.of(Fakes.request("https", "zileo.net", Collections.emptyMap())));
+        assertNotSame(origin, redirectUrls.of(Fakes.request("http", "www.zileo.net", Collections.emptyMap())));
+        assertEquals(6, routings);
+        assertEquals(3, redirectUrls.size());
+    }
+
+    @Test
+    public void testForceHttps() {
+        redirectUrls.configure(reverseRouter, "openid email", true);
+
+        assertTrue(redirectUrls.of(Fakes.request("http", "zileo.net", Collections.emptyMap())).getCallbackUrl().startsWith("https://zileo.net/"));
+        redirectUrls.of(Fakes.request("https", "zileo.net", Collections.emptyMap()));
+        assertEquals(1, redirectUrls.size());
+    }
+
+    @Test
+    public void testBoundedOrigins() {
+        for (int i = 0; i < 100; i++) {
+            redirectUrls.of(Fakes.request("http", "host" + i + ".zileo.net", Collections.emptyMap()));
+        }
+
+        // Host headers are client provided
+        assertTrue(redirectUrls.size() <= 32);
+    }
+
+    @Test
+    public void testAppendedParameters() {
+        Context context = Fakes.request("http", "zileo.net", Collections.emptyMap());
+        String authorizeUrl = redirectUrls.of(context).getAuthorizeUrl();
+        assertSame(authorizeUrl, redirectUrls.getAuthorizeUrl(context));
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("login_hint", "test+1@test.com");
+        parameters.put("prompt", "none");
+        String withHint = redirectUrls.getAuthorizeUrl(Fakes.request("http", "zileo.net", parameters));
+        assertEquals(authorizeUrl + "&login_hint=test%2B1%40test.com", withHint);
+
+        // Cached URL left untouched
+        assertEquals(2, routings);
+        assertSame(authorizeUrl, redirectUrls.getAuthorizeUrl(context));
+    }
+
+    @Test
+    public void testLoginRoute() {
+        LoginRoute loginRoute = new LoginRoute(Fakes.properties(Collections.emptyMap()), reverseRouter);
+
+        assertEquals("/auth0/route1", loginRoute.getPath());
+        assertEquals("/auth0/route1", loginRoute.redirect().getHeaders().get("Location"));
+        assertEquals(1, routings);
+    }
+
+}
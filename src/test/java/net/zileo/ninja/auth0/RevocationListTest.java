@@ -0,0 +1,148 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Date;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.google.common.collect.Maps;
+
+import net.zileo.ninja.auth0.cache.LocalInvalidationBroadcaster;
+import net.zileo.ninja.auth0.cache.SubjectCache;
+import net.zileo.ninja.auth0.cache.TokenDigest;
+import net.zileo.ninja.auth0.revocation.InMemoryRevokedTokens;
+import net.zileo.ninja.auth0.revocation.RevocationList;
+import net.zileo.ninja.auth0.revocation.RevokedTokens;
+import net.zileo.ninja.auth0.store.InMemoryTokenStore;
+import net.zileo.ninja.auth0.store.SessionTokens;
+import net.zileo.ninja.auth0.subject.FailureReason;
+import net.zileo.ninja.auth0.utils.Auth0Subject;
+import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
+import ninja.session.Session;
+
+public class RevocationListTest {
+
+    @Test
+    public void testRevokedToken() {
+        RevocationList revocationList = new RevocationList(true, 3600, 1000, 60);
+
+        revocationList.revoke("revoked", new Date(System.currentTimeMillis() + 60000));
+
+        assertTrue(revocationList.isRevoked("revoked"));
+        assertFalse(revocationList.isRevoked("other"));
+        assertEquals(1, revocationList.size());
+    }
+
+    @Test
+    public void testFewFalsePositives() {
+        RevocationList revocationList = new RevocationList(true, 3600, 1000, 60);
+        Date expiresAt = new Date(System.currentTimeMillis() + 60000);
+
+        for (int i = 0; i < 1000; i++) {
+            revocationList.revoke(TokenDigest.of("revoked" + i), expiresAt);
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertFalse(revocationList.isRevoked(TokenDigest.of("valid" + i)));
+        }
+
+        assertTrue(revocationList.getFalsePositives() < 300);
+    }
+
+    @Test
+    public void testExpiredRevocation() {
+        RevocationList revocationList = new RevocationList(true, 3600, 1000, 60);
+
+        revocationList.revoke("expired", new Date(System.currentTimeMillis() - 1000));
+
+        assertFalse(revocationList.isRevoked("expired"));
+        assertEquals(0, revocationList.size());
+    }
+
+    @Test
+    public void testDisabled() {
+        RevocationList revocationList = new RevocationList(false, 3600, 1000, 60);
+
+        revocationList.revoke("revoked", null);
+
+        assertFalse(revocationList.isRevoked("revoked"));
+    }
+
+    @Test
+    public void testBroadcastRevocation() {
+        LocalInvalidationBroadcaster broadcaster = new LocalInvalidationBroadcaster();
+        RevocationList node1 = new RevocationList(true, 3600, 1000, 60);
+        node1.setBroadcaster(broadcaster);
+        RevocationList node2 = new RevocationList(true, 3600, 1000, 60);
+        node2.setBroadcaster(broadcaster);
+        SubjectCache cache = new SubjectCache(true, 10, 60);
+        cache.setBroadcaster(broadcaster);
+        cache.put("revoked", "user", new Auth0Subject("user", "test@test.com"), null);
+        assertEquals(1, cache.size());
+
+        node1.revoke("revoked", new Date(System.currentTimeMillis() + 60000));
+
+        assertTrue(node2.isRevoked("revoked"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSharedRevokedTokens() {
+        RevokedTokens shared = new InMemoryRevokedTokens();
+        RevocationList node1 = new RevocationList(true, 3600, 1000, 60);
+        node1.setRevokedTokens(shared);
+        node1.revoke("revoked", new Date(System.currentTimeMillis() + 60000));
+
+        // A node started later fills its Bloom filters from the shared set
+        RevocationList node2 = new RevocationList(true, 3600, 1000, 60);
+        assertFalse(node2.isRevoked("revoked"));
+        node2.setRevokedTokens(shared);
+        assertTrue(node2.isRevoked("revoked"));
+        assertEquals(1, node2.size());
+    }
+
+    @Test
+    public void testRevokedTokenRejected() throws IllegalArgumentException, UnsupportedEncodingException {
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        RevocationList revocationList = new RevocationList(true, 3600, 1000, 60);
+        handler.setRevocationList(revocationList);
+
+        String idToken = handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).withExpiresAt(new Date(System.currentTimeMillis() + 60000))
+                .sign(Algorithm.HMAC256("secret"));
+        assertNotNull(handler.buildSubject(null, idToken));
+
+        revocationList.revokeToken(idToken);
+        try {
+            handler.buildSubject(null, idToken);
+            throw new AssertionError("Revoked token accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Provided Id Token has been revoked", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRevokedStoredToken() throws IllegalArgumentException, UnsupportedEncodingException {
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        RevocationList revocationList = new RevocationList(true, 3600, 1000, 60);
+        handler.setRevocationList(revocationList);
+        SessionTokens tokens = new SessionTokens(true, new InMemoryTokenStore(10, 60));
+        handler.setSessionTokens(tokens);
+
+        String idToken = handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).withExpiresAt(new Date(System.currentTimeMillis() + 60000))
+                .sign(Algorithm.HMAC256("secret"));
+        Session session = Fakes.session(new HashMap<>());
+        tokens.save(session, idToken, handler.buildSubject(null, idToken), null);
+        assertTrue(handler.authenticate(Fakes.context(session)).isSuccess());
+
+        // Subject kept along with the token, but revoked (on another session of the same user for example)
+        revocationList.revokeToken(idToken);
+        assertEquals(FailureReason.REVOKED, handler.authenticate(Fakes.context(session)).getFailure());
+    }
+
+}
@@ -0,0 +1,130 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.google.common.collect.Maps;
+
+import net.zileo.ninja.auth0.controllers.Auth0Controller;
+import net.zileo.ninja.auth0.store.InMemoryTokenStore;
+import net.zileo.ninja.auth0.store.SessionTokens;
+import net.zileo.ninja.auth0.store.StoredToken;
+import net.zileo.ninja.auth0.utils.Auth0Subject;
+import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
+import ninja.Context;
+import ninja.session.Session;
+
+public class SessionTokensTest {
+
+    private final static String USER_EMAIL = "test@test.com";
+
+    private Auth0SubjectTokenHandler handler;
+
+    private String idToken;
+
+    private Map<String, String> sessionData;
+
+    private Session session;
+
+    private Context context;
+
+    @Before
+    public void init() throws IllegalArgumentException, UnsupportedEncodingException {
+        handler = new Auth0SubjectTokenHandler();
+        idToken = handler.buildSimulatedJWT(null, USER_EMAIL, Maps.newHashMap()).sign(Algorithm.HMAC256("default-client-secret"));
+
+        sessionData = new HashMap<>();
+        session = Fakes.session(sessionData);
+        context = Fakes.context(session);
+    }
+
+    @Test
+    public void testCookieStorage() {
+        SessionTokens tokens = new SessionTokens(false, new InMemoryTokenStore(10, 60));
+        handler.setSessionTokens(tokens);
+
+        tokens.save(session, idToken, null, null);
+        assertEquals(idToken, sessionData.get(Auth0Controller.SESSION_ID_TOKEN));
+        assertTrue(tokens.isPresent(session));
+        assertEquals(USER_EMAIL, handler.buildSubject(context).getEmail());
+    }
+
+    @Test
+    public void testServerStorage() {
+        InMemoryTokenStore store = new InMemoryTokenStore(10, 60);
+        SessionTokens tokens = new SessionTokens(true, store);
+        handler.setSessionTokens(tokens);
+
+        Auth0Subject subject = handler.buildSubject(null, idToken);
+        tokens.save(session, idToken, subject, new Date(System.currentTimeMillis() + 60000));
+
+        String handle = sessionData.get(Auth0Controller.SESSION_ID_TOKEN);
+        assertNotEquals(idToken, handle);
+        assertTrue(handle.length() < 50);
+        assertEquals(idToken, tokens.getIdToken(session));
+
+        // Subject is not built again
+        assertSame(subject, handler.buildSubject(context));
+
+        tokens.remove(session);
+        assertFalse(tokens.isPresent(session));
+        assertNull(tokens.get(session));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testServerStorageBuildsSubjectOnce() {
+        SessionTokens tokens = new SessionTokens(true, new InMemoryTokenStore(10, 60));
+        handler.setSessionTokens(tokens);
+
+        tokens.save(session, idToken, null, null);
+        assertSame(handler.buildSubject(context), handler.buildSubject(context));
+    }
+
+    @Test
+    public void testServerStorageLookedUpOnce() {
+        AtomicInteger lookups = new AtomicInteger();
+        SessionTokens tokens = new SessionTokens(true, new InMemoryTokenStore(10, 60) {
+            @Override
+            public StoredToken get(String handle) {
+                lookups.incrementAndGet();
+                return super.get(handle);
+            }
+        });
+        handler.setSessionTokens(tokens);
+
+        tokens.save(session, idToken, null, null);
+        assertTrue(tokens.isPresent(context));
+        assertEquals(USER_EMAIL, handler.buildSubject(context).getEmail());
+        assertEquals(1, lookups.get());
+
+        // Next request
+        assertTrue(tokens.isPresent(Fakes.context(session)));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownHandle() {
+        SessionTokens tokens = new SessionTokens(true, new InMemoryTokenStore(10, 60));
+        handler.setSessionTokens(tokens);
+
+        sessionData.put(Auth0Controller.SESSION_ID_TOKEN, "unknown");
+        assertFalse(tokens.isPresent(session));
+        handler.buildSubject(context);
+    }
+
+}
@@ -0,0 +1,108 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.common.collect.Maps;
+
+import net.zileo.ninja.auth0.cache.SingleFlight;
+import net.zileo.ninja.auth0.utils.Auth0Subject;
+import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
+import ninja.Context;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentBuildsCoalesced() throws Exception {
+        AtomicInteger builds = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Slow user lookup stand-in
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler() {
+            @Override
+            public Auth0Subject buildSubjectFromEmail(Context context, DecodedJWT jwt, String userId, String email) {
+                builds.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.buildSubjectFromEmail(context, jwt, userId, email);
+            }
+        };
+        SingleFlight singleFlight = new SingleFlight(true, 10);
+        handler.setSingleFlight(singleFlight);
+        String idToken = token(handler);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Auth0Subject>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> handler.buildSubject(null, idToken)));
+            }
+            while (singleFlight.getCoalesced() < 7) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            Auth0Subject first = results.get(0).get();
+            for (Future<Auth0Subject> result : results) {
+                assertSame(first, result.get());
+            }
+            assertEquals(1, builds.get());
+            assertEquals(0, singleFlight.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitTimeout() throws Exception {
+        SingleFlight singleFlight = new SingleFlight(true, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread leader = new Thread(() -> singleFlight.execute("key", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "leader";
+        }));
+        leader.start();
+        started.await();
+
+        assertEquals("own", singleFlight.execute("key", () -> "own"));
+        assertEquals(1, singleFlight.getTimeouts());
+
+        release.countDown();
+        leader.join();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFailureShared() throws IllegalArgumentException, UnsupportedEncodingException {
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        handler.setSingleFlight(new SingleFlight(true, 10));
+        handler.buildSubject(null, "not.a.token");
+    }
+
+    private static String token(Auth0SubjectTokenHandler handler) throws IllegalArgumentException, UnsupportedEncodingException {
+        return handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).sign(Algorithm.HMAC256("secret"));
+    }
+
+}
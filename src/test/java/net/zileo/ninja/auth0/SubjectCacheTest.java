@@ -0,0 +1,135 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.google.common.collect.Maps;
+
+import net.zileo.ninja.auth0.cache.InMemorySharedSubjectCache;
+import net.zileo.ninja.auth0.cache.LocalInvalidationBroadcaster;
+import net.zileo.ninja.auth0.cache.SubjectCache;
+import net.zileo.ninja.auth0.utils.Auth0Subject;
+import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
+
+public class SubjectCacheTest {
+
+    private final static String DEFAULT_CLIENT_SECRET = "default-client-secret";
+
+    private final static String USER_EMAIL = "test@test.com";
+
+    private Auth0SubjectTokenHandler handler;
+
+    private Algorithm algorithm;
+
+    @Before
+    public void init() throws IllegalArgumentException, UnsupportedEncodingException {
+        handler = new Auth0SubjectTokenHandler();
+        algorithm = Algorithm.HMAC256(DEFAULT_CLIENT_SECRET);
+    }
+
+    @Test
+    public void testCachedSubject() {
+        SubjectCache cache = new SubjectCache(true, 10, 60);
+        handler.setSubjectCache(cache);
+
+        String idToken = handler.buildSimulatedJWT(null, USER_EMAIL, Maps.newHashMap()).withExpiresAt(new Date(System.currentTimeMillis() + 60000)).sign(algorithm);
+
+        Auth0Subject first = handler.buildSubject(null, idToken);
+        Auth0Subject second = handler.buildSubject(null, idToken);
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testExpiredTokenNotCached() {
+        SubjectCache cache = new SubjectCache(true, 10, 60);
+        handler.setSubjectCache(cache);
+
+        String idToken = handler.buildSimulatedJWT(null, USER_EMAIL, Maps.newHashMap()).withExpiresAt(new Date(System.currentTimeMillis() - 1000)).sign(algorithm);
+
+        assertNotSame(handler.buildSubject(null, idToken), handler.buildSubject(null, idToken));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testDisabledCache() {
+        SubjectCache cache = new SubjectCache(false, 10, 60);
+        handler.setSubjectCache(cache);
+
+        String idToken = handler.buildSimulatedJWT(null, USER_EMAIL, Maps.newHashMap()).sign(algorithm);
+
+        assertNotSame(handler.buildSubject(null, idToken), handler.buildSubject(null, idToken));
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testSizeBound() {
+        SubjectCache cache = new SubjectCache(true, 2, 60);
+
+        cache.put("a", new Auth0Subject("a", "a"), null);
+        cache.put("b", new Auth0Subject("b", "b"), null);
+        cache.put("c", new Auth0Subject("c", "c"), null);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get("a"));
+        assertEquals("c", ((Auth0Subject) cache.get("c")).getId());
+    }
+
+    @Test
+    public void testSharedCache() {
+        InMemorySharedSubjectCache shared = new InMemorySharedSubjectCache(10);
+        SubjectCache node1 = node(shared, null);
+        SubjectCache node2 = node(shared, null);
+
+        handler.setSubjectCache(node1);
+        String idToken = handler.buildSimulatedJWT(null, USER_EMAIL, Maps.newHashMap()).withExpiresAt(new Date(System.currentTimeMillis() + 60000)).sign(algorithm);
+        Auth0Subject first = handler.buildSubject(null, idToken);
+
+        Auth0SubjectTokenHandler otherHandler = new Auth0SubjectTokenHandler();
+        otherHandler.setSubjectCache(node2);
+        assertSame(first, otherHandler.buildSubject(null, idToken));
+        assertEquals(1, node2.getSharedHits());
+        assertEquals(1, node2.size());
+    }
+
+    @Test
+    public void testInvalidationBroadcast() {
+        InMemorySharedSubjectCache shared = new InMemorySharedSubjectCache(10);
+        LocalInvalidationBroadcaster broadcaster = new LocalInvalidationBroadcaster();
+        SubjectCache node1 = node(shared, broadcaster);
+        SubjectCache node2 = node(shared, broadcaster);
+
+        node1.put("a", "user-a", new Auth0Subject("a", "a"), null);
+        node1.put("b", "user-b", new Auth0Subject("b", "b"), null);
+        node2.get("a");
+        node2.get("b");
+
+        node2.invalidate("a");
+        assertNull(node1.get("a"));
+        assertEquals(1, node2.size());
+
+        node1.invalidateUser("user-b");
+        assertEquals(0, node1.size());
+        assertEquals(0, node2.size());
+        assertEquals(0, shared.size());
+    }
+
+    private static SubjectCache node(InMemorySharedSubjectCache shared, LocalInvalidationBroadcaster broadcaster) {
+        SubjectCache cache = new SubjectCache(true, 10, 60);
+        cache.setSharedCache(shared);
+        cache.setBroadcaster(broadcaster);
+        return cache;
+    }
+
+}
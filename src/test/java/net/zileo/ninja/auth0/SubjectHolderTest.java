@@ -0,0 +1,97 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.common.collect.Maps;
+
+import net.zileo.ninja.auth0.controllers.Auth0Controller;
+import net.zileo.ninja.auth0.filters.AuthenticateFilter;
+import net.zileo.ninja.auth0.subject.Subject;
+import net.zileo.ninja.auth0.subject.SubjectExtractor;
+import net.zileo.ninja.auth0.subject.SubjectHolder;
+import net.zileo.ninja.auth0.utils.Auth0Subject;
+import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
+import ninja.Context;
+import ninja.exceptions.ForbiddenRequestException;
+
+public class SubjectHolderTest {
+
+    private AtomicInteger builds;
+
+    private Auth0SubjectTokenHandler handler;
+
+    private Map<String, String> sessionData;
+
+    private Context context;
+
+    @Before
+    public void init() throws IllegalArgumentException, UnsupportedEncodingException {
+        builds = new AtomicInteger();
+        handler = new Auth0SubjectTokenHandler() {
+            @Override
+            public Auth0Subject buildSubjectFromEmail(Context context, DecodedJWT jwt, String userId, String email) {
+                builds.incrementAndGet();
+                return super.buildSubjectFromEmail(context, jwt, userId, email);
+            }
+        };
+
+        sessionData = new HashMap<>();
+        sessionData.put(Auth0Controller.SESSION_ID_TOKEN, handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).sign(Algorithm.HMAC256("secret")));
+        context = Fakes.context(Fakes.session(sessionData));
+    }
+
+    @Test
+    public void testResolvedOncePerRequest() {
+        SubjectExtractor extractor = new SubjectExtractor(handler);
+
+        Subject first = extractor.extract(context);
+        Subject second = extractor.extract(context);
+        assertSame(first, second);
+        assertSame(first, AuthenticateFilter.get(context, Auth0Subject.class));
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    public void testLazyResolution() {
+        SubjectHolder holder = SubjectHolder.of(context, handler).require();
+        assertFalse(holder.isResolved());
+        assertEquals(0, builds.get());
+
+        assertSame(holder.resolve(), AuthenticateFilter.get(context, Auth0Subject.class));
+        assertTrue(holder.isResolved());
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    public void testFailureRemembered() {
+        sessionData.put(Auth0Controller.SESSION_ID_TOKEN, "not.a.token");
+        SubjectExtractor extractor = new SubjectExtractor(handler);
+
+        assertNull(extractor.extract(context));
+        assertNull(extractor.extract(context));
+        assertTrue(SubjectHolder.get(context).isResolved());
+    }
+
+    @Test(expected = ForbiddenRequestException.class)
+    public void testRequiredFailure() {
+        sessionData.put(Auth0Controller.SESSION_ID_TOKEN, "not.a.token");
+        SubjectHolder.of(context, handler).require();
+
+        new SubjectExtractor(handler).extract(context);
+    }
+
+}
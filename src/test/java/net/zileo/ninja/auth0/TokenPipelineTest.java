@@ -0,0 +1,174 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.google.common.collect.Maps;
+
+import net.zileo.ninja.auth0.jwt.TokenCheck;
+import net.zileo.ninja.auth0.jwt.TokenChecks;
+import net.zileo.ninja.auth0.jwt.TokenPipeline;
+import net.zileo.ninja.auth0.jwt.TokenPreview;
+import net.zileo.ninja.auth0.metrics.Auth0Metrics;
+import net.zileo.ninja.auth0.metrics.DefaultAuth0Metrics;
+import net.zileo.ninja.auth0.subject.FailureReason;
+import net.zileo.ninja.auth0.utils.Auth0SubjectTokenHandler;
+
+public class TokenPipelineTest {
+
+    private final static String DOMAIN = "zileo-test.eu.auth0.com";
+
+    private final static String ISSUER = "https://" + DOMAIN + "/";
+
+    private final static String CLIENT_ID = "client-id";
+
+    private TokenPipeline pipeline;
+
+    private Algorithm algorithm;
+
+    @Before
+    public void init() throws IllegalArgumentException, UnsupportedEncodingException {
+        pipeline = new TokenPipeline();
+        pipeline.configure(Arrays.asList(TokenChecks.shape(4096), TokenChecks.algorithm(Collections.singleton("HS256")), TokenChecks.time(60)));
+        algorithm = Algorithm.HMAC256("secret");
+    }
+
+    @Test
+    public void testAccepted() {
+        assertNull(pipeline.check(JWT.create().withSubject("user").withExpiresAt(new Date(System.currentTimeMillis() + 60000)).sign(algorithm)));
+        assertNull(pipeline.check(JWT.create().withSubject("user").sign(algorithm)));
+    }
+
+    @Test
+    public void testShape() {
+        assertEquals("shape", pipeline.check("not a token"));
+        assertEquals("shape", pipeline.check("a.b"));
+        assertEquals("shape", pipeline.check("a..c"));
+        assertEquals("shape", pipeline.check("a.b.c.d"));
+        assertEquals("shape", pipeline.check(JWT.create().withClaim("padding", new String(new char[4096])).sign(algorithm)));
+    }
+
+    @Test
+    public void testAlgorithm() {
+        assertEquals("algorithm", pipeline.check(JWT.create().withSubject("user").sign(Algorithm.none())));
+        assertEquals("algorithm", pipeline.check("e30.e30.c2ln"));
+        assertEquals("algorithm", pipeline.check("bm90anNvbg.e30.c2ln"));
+    }
+
+    @Test
+    public void testTimeClaims() {
+        long now = System.currentTimeMillis();
+
+        assertEquals("time", pipeline.check(JWT.create().withExpiresAt(new Date(now - 120000)).sign(algorithm)));
+        assertEquals("time", pipeline.check(JWT.create().withNotBefore(new Date(now + 120000)).sign(algorithm)));
+
+        // Within the accepted clock skew
+        assertNull(pipeline.check(JWT.create().withExpiresAt(new Date(now - 30000)).sign(algorithm)));
+        assertNull(pipeline.check(JWT.create().withNotBefore(new Date(now + 30000)).sign(algorithm)));
+    }
+
+    @Test
+    public void testOptIn() throws UnsupportedEncodingException {
+        TokenPipeline byDefault = new TokenPipeline();
+        byDefault.init(Fakes.properties(Collections.emptyMap()), Auth0Metrics.NOOP, DOMAIN, CLIENT_ID);
+        assertFalse(byDefault.isEnabled());
+
+        // Expired tokens are still accepted when only decoded
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        handler.setTokenPipeline(byDefault);
+        assertNotNull(handler.buildSubject(null,
+                handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).withExpiresAt(new Date(System.currentTimeMillis() - 120000)).sign(algorithm)));
+
+        TokenPipeline enabled = new TokenPipeline();
+        enabled.init(Fakes.properties(Collections.singletonMap("auth0.verification.checks", "true")), Auth0Metrics.NOOP, DOMAIN, CLIENT_ID);
+        assertTrue(enabled.isEnabled());
+        assertEquals(5, enabled.getChecks().size());
+    }
+
+    @Test
+    public void testIssuerAndAudience() throws UnsupportedEncodingException {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("auth0.verification.checks", "true");
+        properties.put("auth0.bearer.audience", "https://api.zileo.net");
+        pipeline.init(Fakes.properties(properties), Auth0Metrics.NOOP, DOMAIN, CLIENT_ID);
+
+        assertNull(pipeline.check(JWT.create().withIssuer(ISSUER).withAudience(CLIENT_ID).sign(algorithm)));
+        assertNull(pipeline.check(JWT.create().withIssuer(ISSUER).withAudience("https://api.zileo.net", ISSUER + "userinfo").sign(algorithm)));
+        assertEquals("issuer", pipeline.check(JWT.create().withIssuer("https://other.eu.auth0.com/").withAudience(CLIENT_ID).sign(algorithm)));
+        assertEquals("issuer", pipeline.check(JWT.create().withAudience(CLIENT_ID).sign(algorithm)));
+        assertEquals("audience", pipeline.check(JWT.create().withIssuer(ISSUER).withAudience("other-client").sign(algorithm)));
+        assertEquals("audience", pipeline.check(JWT.create().withIssuer(ISSUER).sign(algorithm)));
+
+        // Simulated tokens outside of production
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        assertNull(pipeline.check(handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).sign(algorithm)));
+
+        handler.setTokenPipeline(pipeline);
+        assertEquals(FailureReason.AUDIENCE, handler.authenticate(null, JWT.create().withIssuer(ISSUER).withAudience("other-client").sign(algorithm)).getFailure());
+    }
+
+    @Test
+    public void testCustomCheck() throws UnsupportedEncodingException {
+        DefaultAuth0Metrics metrics = new DefaultAuth0Metrics();
+        pipeline.setMetrics(metrics);
+        pipeline.addCheck(new TokenCheck() {
+            @Override
+            public String getName() {
+                return "tenant";
+            }
+
+            @Override
+            public boolean accept(TokenPreview token) {
+                return false;
+            }
+        });
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        handler.setTokenPipeline(pipeline);
+        handler.setMetrics(metrics);
+
+        String idToken = handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).sign(algorithm);
+        assertEquals(FailureReason.CHECK, handler.authenticate(null, idToken).getFailure());
+        assertEquals(1, metrics.getCount(Auth0Metrics.AUTHENTICATION_FAILURE + "tenant"));
+        assertSame(pipeline.getFailureMetricName("tenant"), pipeline.getFailureMetricName("tenant"));
+    }
+
+    @Test
+    public void testRejectedBeforeDecoding() {
+        DefaultAuth0Metrics metrics = new DefaultAuth0Metrics();
+        pipeline.setMetrics(metrics);
+        Auth0SubjectTokenHandler handler = new Auth0SubjectTokenHandler();
+        handler.setTokenPipeline(pipeline);
+        handler.setMetrics(metrics);
+
+        String expired = handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).withExpiresAt(new Date(System.currentTimeMillis() - 120000)).sign(algorithm);
+        try {
+            handler.buildSubject(null, expired);
+            throw new AssertionError("Expired token accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, metrics.getCount(Auth0Metrics.AUTHENTICATION_FAILURE + "time"));
+        }
+
+        assertNull(metrics.getTimer(Auth0Metrics.SUBJECT_DECODE));
+        assertEquals(1, metrics.getTimer(Auth0Metrics.SUBJECT_CHECK + "time").getCount());
+
+        String valid = handler.buildSimulatedJWT(null, "test@test.com", Maps.newHashMap()).sign(algorithm);
+        assertNotNull(handler.buildSubject(null, valid));
+    }
+
+}
@@ -0,0 +1,227 @@
+package net.zileo.ninja.auth0;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.auth0.exception.Auth0Exception;
+import com.auth0.json.auth.TokenHolder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.zileo.ninja.auth0.client.CircuitBreaker;
+import net.zileo.ninja.auth0.client.CodeExchanger;
+import net.zileo.ninja.auth0.store.InMemoryTokenStore;
+import net.zileo.ninja.auth0.store.SessionTokens;
+import net.zileo.ninja.auth0.store.StoredToken;
+import net.zileo.ninja.auth0.store.TokenRenewer;
+import ninja.session.Session;
+
+public class TokenRenewerTest {
+
+    private AtomicInteger calls;
+
+    private CountDownLatch release;
+
+    private volatile Auth0Exception failure;
+
+    private CodeExchanger exchanger;
+
+    private InMemoryTokenStore store;
+
+    private TokenRenewer renewer;
+
+    @Before
+    public void init() {
+        calls = new AtomicInteger();
+        release = new CountDownLatch(0);
+
+        // Auth0 stand-in
+        exchanger = new CodeExchanger() {
+            @Override
+            protected TokenHolder executeRefresh(String refreshToken) throws Auth0Exception {
+                calls.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new Auth0Exception("Interrupted", e);
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                return tokens("renewed-" + refreshToken, 3600);
+            }
+        };
+        exchanger.configure(2, 10, 5, new CircuitBreaker(5, 60));
+
+        store = new InMemoryTokenStore(100, 36000);
+        renewer = new TokenRenewer();
+        renewer.configure(true, store, exchanger, 300, 0, 5);
+    }
+
+    @After
+    public void stop() {
+        release.countDown();
+        renewer.stop();
+        exchanger.stop();
+    }
+
+    @Test
+    public void testNotRenewed() {
+        StoredToken token = put("handle", "refresh", System.currentTimeMillis() + 3600000);
+        assertSame(token, renewer.renew("handle", token));
+
+        StoredToken notRenewable = put("other", null, System.currentTimeMillis() - 1000);
+        assertSame(notRenewable, renewer.renew("other", notRenewable));
+
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void testExpiredRenewedSynchronously() {
+        StoredToken token = put("handle", "refresh", System.currentTimeMillis() - 1000);
+
+        StoredToken renewed = renewer.renew("handle", token);
+        assertEquals("renewed-refresh", renewed.getIdToken());
+        assertEquals("refresh", renewed.getRefreshToken());
+        assertTrue(renewed.getExpiresAt() > System.currentTimeMillis() + 3500000);
+        assertSame(renewed, store.get("handle"));
+        assertEquals(1, renewer.getRenewed());
+    }
+
+    @Test
+    public void testRenewedAheadOnce() throws InterruptedException {
+        release = new CountDownLatch(1);
+        StoredToken token = put("handle", "refresh", System.currentTimeMillis() + 60000);
+
+        // Still valid : the current token is returned while renewing it in the background, once
+        for (int i = 0; i < 10; i++) {
+            assertSame(token, renewer.renew("handle", token));
+        }
+        release.countDown();
+
+        waitForRenewals();
+        assertEquals(1, calls.get());
+        assertEquals(9, renewer.getCoalesced());
+        assertEquals("renewed-refresh", store.get("handle").getIdToken());
+    }
+
+    @Test
+    public void testFailedRenewal() {
+        failure = new Auth0Exception("Network error");
+        StoredToken token = put("handle", "refresh", System.currentTimeMillis() - 1000);
+
+        // Expired and not renewable : forgotten
+        assertNull(renewer.renew("handle", token));
+        assertEquals(1, renewer.getFailures());
+        assertNull(store.get("handle"));
+    }
+
+    @Test
+    public void testFailedRenewalBackoff() throws InterruptedException {
+        failure = new Auth0Exception("Network error");
+        StoredToken token = put("handle", "refresh", System.currentTimeMillis() + 60000);
+
+        assertSame(token, renewer.renew("handle", token));
+        waitForRenewals();
+
+        // Still valid : kept, without retrying on each request
+        for (int i = 0; i < 10; i++) {
+            assertSame(token, renewer.renew("handle", token));
+        }
+        waitForRenewals();
+        assertEquals(1, calls.get());
+        assertSame(token, store.get("handle"));
+    }
+
+    @Test
+    public void testNotBroughtBackAfterLogout() throws InterruptedException {
+        release = new CountDownLatch(1);
+        StoredToken token = put("handle", "refresh", System.currentTimeMillis() + 60000);
+
+        renewer.renew("handle", token);
+        store.remove("handle");
+        release.countDown();
+
+        waitForRenewals();
+        assertNull(store.get("handle"));
+    }
+
+    @Test
+    public void testJitter() {
+        renewer.configure(true, store, exchanger, 300, 120, 5);
+        StoredToken token = new StoredToken("token", "refresh", null, 10000000);
+
+        for (String handle : new String[] { "a", "b", "some-handle", "another-handle" }) {
+            long renewalTime = renewer.getRenewalTime(handle, token);
+            assertTrue(renewalTime <= 10000000 - 300000 && renewalTime >= 10000000 - 420000);
+        }
+    }
+
+    @Test
+    public void testSessionTokens() {
+        SessionTokens sessionTokens = new SessionTokens(true, store);
+        sessionTokens.setRenewer(renewer);
+
+        Map<String, String> sessionData = new HashMap<>();
+        Session session = Fakes.session(sessionData);
+        sessionTokens.save(session, "first", "refresh", null, new Date(System.currentTimeMillis() - 1000));
+
+        // Only a handle in session, the expired token being renewed on first use
+        assertEquals(1, sessionData.size());
+        assertEquals("first", sessionTokens.peek(session));
+        assertEquals(0, calls.get());
+        assertEquals("renewed-refresh", sessionTokens.getIdToken(session));
+        assertTrue(sessionTokens.isPresent(session));
+    }
+
+    @Test
+    public void testSessionTokensNotRenewed() {
+        failure = new Auth0Exception("Network error");
+        SessionTokens sessionTokens = new SessionTokens(true, store);
+        sessionTokens.setRenewer(renewer);
+
+        Session session = Fakes.session(new HashMap<>());
+        sessionTokens.save(session, "first", "refresh", null, new Date(System.currentTimeMillis() - 1000));
+
+        // Handled as without session, so that the user logs in again
+        assertFalse(sessionTokens.isPresent(session));
+        assertNull(sessionTokens.getIdToken(session));
+        assertEquals(1, calls.get());
+    }
+
+    private StoredToken put(String handle, String refreshToken, long expiresAt) {
+        StoredToken token = new StoredToken("token", refreshToken, null, expiresAt);
+        store.put(handle, token);
+        return token;
+    }
+
+    private void waitForRenewals() throws InterruptedException {
+        long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (renewer.getInFlight() > 0 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static TokenHolder tokens(String idToken, long expiresIn) {
+        try {
+            return new ObjectMapper().readValue("{\"id_token\":\"" + idToken + "\",\"expires_in\":" + expiresIn + "}", TokenHolder.class);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}